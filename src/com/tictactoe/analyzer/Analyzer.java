@@ -0,0 +1,290 @@
+/*
+ * This file is part of KenTacToe, (c) Kenshin Himura, 2013.
+ *
+ * KenTacToe is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KenTacToe is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KenTacToe.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.tictactoe.analyzer;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.tictactoe.player.Player;
+import com.tictactoe.search.Search;
+import com.tictactoe.table.Table;
+
+/**
+ * The <code>Analyzer</code> class analyzes positions in batch, without any
+ * interaction. Positions are read one per line, as the cells of the table
+ * (see <code>Table.parse()</code>) and the sign of the side to move, separated
+ * by a space, eg, <code>X---O---- X</code>. For every position, a line with the
+ * best move (the index of its cell), its score, the depth searched and the
+ * number of nodes searched is written, in the same order as the positions were
+ * read. A position which cannot be read gets a line starting with <code>error</code>,
+ * and a position which is already over gets the move -1.
+ * The positions are searched by a pool of workers, but only a bounded number
+ * of them are read ahead of the last one written, so a file of any size is
+ * analyzed in constant memory.
+ * @author Kenshin Himura
+ *
+ */
+public class Analyzer
+{
+	/**
+	 * Number of positions read ahead of the last one written, per worker.
+	 */
+	private static final int POSITIONS_PER_WORKER=4;
+	/**
+	 * Number of workers searching positions at once.
+	 */
+	private int workers=Runtime.getRuntime().availableProcessors();
+	/**
+	 * Fixed search depth, or -1 to let the search choose its depth (see
+	 * <code>Search.optimizeSearchDepth()</code>).
+	 */
+	private byte searchDepth=-1;
+	/**
+	 * Time limit of every search in milliseconds, 0 for none.
+	 */
+	private float time;
+	/**
+	 * The search of every worker thread, kept from one position to the next
+	 * so that its tables are allocated only once. The transposition table is
+	 * cleared for every position, so that the moves and scores found do not
+	 * depend on the number of workers (the nodes searched still may, as the
+	 * move ordering tables are kept).
+	 */
+	private final ThreadLocal<Search> searches=new ThreadLocal<Search>();
+	/**
+	 * Default constructor of the <code>Analyzer</code> class.
+	 */
+	public Analyzer()
+	{
+
+	}
+	/**
+	 * This method analyzes all the positions of an input stream, and writes the
+	 * results to an output stream, in the same order.
+	 * @param in Stream of positions, one per line
+	 * @param out Stream the results are written to, one line per position
+	 * @throws IOException If the positions cannot be read
+	 */
+	public void analyze(InputStream in, OutputStream out) throws IOException
+	{
+		BufferedReader reader=new BufferedReader(new InputStreamReader(in,StandardCharsets.US_ASCII));
+		PrintWriter writer=new PrintWriter(new BufferedWriter(new OutputStreamWriter(out,StandardCharsets.US_ASCII)));
+		ExecutorService pool=Executors.newFixedThreadPool(workers);
+		ArrayDeque<Future<String>> pending=new ArrayDeque<Future<String>>();
+		int window=workers*POSITIONS_PER_WORKER;
+		try
+		{
+			String line;
+			while((line=reader.readLine())!=null)
+			{
+				if(line.trim().isEmpty())
+					continue;
+				if(pending.size()>=window)
+					writer.println(result(pending.poll()));
+				final String position=line;
+				pending.add(pool.submit(new Callable<String>()
+				{
+					@Override
+					public String call()
+					{
+						return analyze(position);
+					}
+				}));
+			}
+			while(!pending.isEmpty())
+				writer.println(result(pending.poll()));
+		}
+		finally
+		{
+			pool.shutdownNow();
+			writer.flush();
+		}
+	}
+	/**
+	 * This method waits for the analysis of a position to finish.
+	 * @param analysis The analysis of the position
+	 * @return The result line of the position
+	 */
+	private static String result(Future<String> analysis)
+	{
+		try
+		{
+			return analysis.get();
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while analyzing",e);
+		}
+		catch(ExecutionException e)
+		{
+			return "error "+e.getCause();
+		}
+	}
+	/**
+	 * This method analyzes one position, with the search of the current thread.
+	 * @param position The cells of the table and the sign of the side to move,
+	 * separated by a space
+	 * @return The best move, its score, the depth searched and the number of
+	 * nodes searched, separated by spaces, or <code>error</code> and the reason
+	 */
+	public String analyze(String position)
+	{
+		String fields[]=position.trim().split("\\s+");
+		if((fields.length!=2)||(fields[1].length()!=1)||("XO".indexOf(fields[1].charAt(0))<0))
+			return "error Expected the cells and the side to move (X or O): "+position;
+		Table table;
+		try
+		{
+			table=Table.parse(fields[0]);
+		}
+		catch(IllegalArgumentException e)
+		{
+			return "error "+e.getMessage();
+		}
+		if((table.isComplete()!=-1)||(table.getNoOfDs()==0))
+			return "-1 "+table.getScore()+" 0 0";
+		Search search=searches.get();
+		if(search==null)
+		{
+			search=new Search();
+			searches.set(search);
+		}
+		//results of other positions would make the result depend on which worker got it
+		if(search.getTranspositionTable()!=null)
+			search.getTranspositionTable().clear();
+		char sign=fields[1].charAt(0);
+		search.setCurrentState(table);
+		search.setCurrentSearchState(table);
+		search.setCurrentPlayer(new Player("Analyzer","AI",sign));
+		byte depth=(byte)(table.getNoOfDs()-1);
+		if(searchDepth>=0)
+			depth=(byte)Math.min(depth,searchDepth);
+		search.setSearchDepth(depth);
+		//a fixed depth is searched as it is, not cut down to the latency target
+		search.setLatencyTarget((searchDepth>=0)?0:Search.DEFAULT_LATENCY_TARGET);
+		search.setTime(time);
+		byte bestMove=search.getBestMove().getIndex();
+		return bestMove+" "+search.getBestScore()+" "+Math.max(0,search.getCompletedDepth())+" "+search.getNodes();
+	}
+	/**
+	 * Generic getter method to get the number of workers of the Analyzer.
+	 * @return Number of workers searching positions at once
+	 */
+	public int getWorkers()
+	{
+		return workers;
+	}
+	/**
+	 * Generic setter method to set the number of workers of the Analyzer.
+	 * @param workers Number of workers searching positions at once, at least 1
+	 */
+	public void setWorkers(int workers)
+	{
+		this.workers = Math.max(1,workers);
+	}
+	/**
+	 * Generic getter method to get the search depth of the Analyzer.
+	 * @return Fixed search depth, or -1 if the search chooses its depth
+	 */
+	public byte getSearchDepth()
+	{
+		return searchDepth;
+	}
+	/**
+	 * Generic setter method to set the search depth of the Analyzer.
+	 * @param searchDepth Fixed search depth, or -1 to let the search choose its depth
+	 */
+	public void setSearchDepth(byte searchDepth)
+	{
+		this.searchDepth = searchDepth;
+	}
+	/**
+	 * Generic getter method to get the time limit of the Analyzer.
+	 * @return Time limit of every search in milliseconds, 0 for none
+	 */
+	public float getTime()
+	{
+		return time;
+	}
+	/**
+	 * Generic setter method to set the time limit of the Analyzer.
+	 * @param time Time limit of every search in milliseconds, 0 for none
+	 */
+	public void setTime(float time)
+	{
+		this.time = time;
+	}
+	/**
+	 * Runs the analyzer from the command line. Arguments (all optional):
+	 * <code>-depth d</code>, <code>-time ms</code>, <code>-workers n</code>,
+	 * <code>-in file</code> (standard input by default) and <code>-out file</code>
+	 * (standard output by default).
+	 * @param args The arguments
+	 * @throws IOException If a file cannot be read or written
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		Analyzer analyzer=new Analyzer();
+		InputStream in=System.in;
+		OutputStream out=System.out;
+		for(int i=0;i+1<args.length;i+=2)
+		{
+			if(args[i].equals("-depth"))
+				analyzer.setSearchDepth(Byte.parseByte(args[i+1]));
+			else if(args[i].equals("-time"))
+				analyzer.setTime(Float.parseFloat(args[i+1]));
+			else if(args[i].equals("-workers"))
+				analyzer.setWorkers(Integer.parseInt(args[i+1]));
+			else if(args[i].equals("-in"))
+				in=new FileInputStream(args[i+1]);
+			else if(args[i].equals("-out"))
+				out=new FileOutputStream(args[i+1]);
+			else
+				throw new IllegalArgumentException("Unknown argument: "+args[i]);
+		}
+		Search.calibrate();
+		try
+		{
+			analyzer.analyze(in,out);
+		}
+		finally
+		{
+			if(in!=System.in)
+				in.close();
+			if(out!=System.out)
+				out.close();
+		}
+	}
+}
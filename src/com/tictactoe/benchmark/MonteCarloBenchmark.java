@@ -0,0 +1,105 @@
+/*
+ * This file is part of KenTacToe, (c) Kenshin Himura, 2013.
+ *
+ * KenTacToe is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KenTacToe is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KenTacToe.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.tictactoe.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tictactoe.player.Player;
+import com.tictactoe.search.MonteCarloSearch;
+import com.tictactoe.table.Table;
+
+/**
+ * The <code>MonteCarloBenchmark</code> class measures how long the Monte Carlo
+ * search takes to play a fixed number of games from an empty table, with
+ * different numbers of threads, so that the rate of games can be compared from
+ * one number of threads to another. The time limit of the search is lifted, so
+ * every call plays the same number of games.
+ * It needs JMH (jmh-core and jmh-generator-annprocess) on the class path to be
+ * compiled, and is run with <code>org.openjdk.jmh.Main MonteCarloBenchmark</code>.
+ * @author Kenshin Himura
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations=5,time=1)
+@Measurement(iterations=5,time=1)
+@Fork(1)
+public class MonteCarloBenchmark
+{
+	/**
+	 * Number of games played by every call.
+	 */
+	public static final long PLAYOUTS=1<<16;
+	/**
+	 * Number of rows (and columns) of the table.
+	 */
+	@Param({"9","10","11"})
+	public byte side;
+	/**
+	 * Number of threads of the search.
+	 */
+	@Param({"1","2","4","8"})
+	public int threads;
+	/**
+	 * The search of the benchmark, kept so that its pool of nodes is allocated once.
+	 */
+	private final MonteCarloSearch search=new MonteCarloSearch();
+	/**
+	 * Makes the search ready.
+	 */
+	@Setup
+	public void setUp()
+	{
+		search.setCurrentState(new Table(side,side));
+		search.setCurrentPlayer(new Player("Benchmark",Player.AI,'X'));
+		search.setTime(Float.POSITIVE_INFINITY);
+		search.setMaxPlayouts(PLAYOUTS);
+		search.setThreads(threads);
+	}
+	/**
+	 * Stops the threads of the search, if any.
+	 */
+	@TearDown
+	public void tearDown()
+	{
+		search.shutdown();
+	}
+	/**
+	 * Plays <code>PLAYOUTS</code> games.
+	 */
+	@Benchmark
+	public byte playouts()
+	{
+		return search.getBestMove().getIndex();
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ * This file is part of KenTacToe, (c) Kenshin Himura, 2013.
+ *
+ * KenTacToe is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KenTacToe is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KenTacToe.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.tictactoe.benchmark;
+
+import java.util.Random;
+
+import com.tictactoe.table.Table;
+
+/**
+ * The <code>Positions</code> class makes the sets of positions the benchmarks
+ * are run on. A set is made from a fixed seed, so the same set is benchmarked
+ * every time, on every machine, and results of different runs (and commits)
+ * can be compared.
+ * @author Kenshin Himura
+ *
+ */
+public class Positions
+{
+	/**
+	 * Seed every set of positions is made from.
+	 */
+	public static final long SEED=0x4B656E5461635L;
+	/**
+	 * Number of positions in a set.
+	 */
+	public static final int COUNT=64;
+	/**
+	 * No use in constructing, all its methods are static.
+	 */
+	private Positions()
+	{
+
+	}
+	/**
+	 * This method makes a set of positions, by playing random moves, X first,
+	 * on an empty table. Positions in which a side has already won are thrown
+	 * away, so every position can still be played on.
+	 * @param side Number of rows (and columns) of the table
+	 * @param fill Percentage of the cells to be filled
+	 * @return <code>COUNT</code> positions, the same ones for the same arguments
+	 */
+	public static Table[] make(byte side, int fill)
+	{
+		Random random=new Random(SEED^(side*101+fill));
+		int size=side*side;
+		//at least one empty cell is left to move to
+		int moves=Math.min(size*fill/100,size-1);
+		Table positions[]=new Table[COUNT];
+		for(int i=0;i<COUNT;)
+		{
+			Table table=new Table(side,side);
+			char sign='X';
+			for(int m=0;m<moves;m++)
+			{
+				byte index;
+				do
+					index=(byte)random.nextInt(size);
+				while(!table.isEmpty(index));
+				table.makeMove(index,sign);
+				sign=(sign=='X')?'O':'X';
+			}
+			if(table.isComplete()==-1)
+				positions[i++]=table;
+		}
+		return positions;
+	}
+	/**
+	 * This method gives the sign of the side to move in a position made by
+	 * <code>make()</code>.
+	 * @param table The position
+	 * @return 'X' if as many X's as O's are on the table, 'O' otherwise
+	 */
+	public static char sideToMove(Table table)
+	{
+		return (((table.getSizeOfTable()-table.getNoOfDs())%2)==0)?'X':'O';
+	}
+}
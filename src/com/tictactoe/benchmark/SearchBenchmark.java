@@ -0,0 +1,180 @@
+/*
+ * This file is part of KenTacToe, (c) Kenshin Himura, 2013.
+ *
+ * KenTacToe is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KenTacToe is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KenTacToe.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.tictactoe.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tictactoe.player.Player;
+import com.tictactoe.search.Search;
+import com.tictactoe.search.TranspositionTable;
+import com.tictactoe.table.Table;
+
+/**
+ * The <code>SearchBenchmark</code> class measures searches of a fixed depth,
+ * on tables of every size and filled to different levels (see
+ * <code>Positions</code>). Every call searches every position of the set in
+ * turn, and is counted as one operation per position, so that a call is long
+ * enough to be timed on its own. Every position is searched by a search of its
+ * own, whose transposition table and move ordering tables are emptied before
+ * every call (outside of the time measured): searched again with the entries
+ * of the last call, every move of the root would be found in the table at
+ * its full depth, and the probes of the table timed instead of the search.
+ * The threat search, which would play some positions without searching them,
+ * is turned off.
+ * <code>moveGen</code> searches one ply, which is mostly generating, ordering
+ * and scoring the moves of the root; <code>alphaBeta</code> and
+ * <code>getBestMove</code> search to <code>depth</code> with plain alpha-beta
+ * and with principal variation search (the default) respectively.
+ * It needs JMH (jmh-core and jmh-generator-annprocess) on the class path to be
+ * compiled, and is run with <code>org.openjdk.jmh.Main SearchBenchmark</code>.
+ * @author Kenshin Himura
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations=5,time=1)
+@Measurement(iterations=5,time=1)
+@Fork(1)
+public class SearchBenchmark
+{
+	/**
+	 * Number of rows (and columns) of the tables.
+	 */
+	@Param({"3","4","5","6","7","8","9","10","11"})
+	public byte side;
+	/**
+	 * Percentage of the cells of the tables filled.
+	 */
+	@Param({"0","25","50","75"})
+	public int fill;
+	/**
+	 * Depth of the searches of <code>alphaBeta</code> and <code>getBestMove</code>.
+	 */
+	@Param({"3"})
+	public byte depth;
+	/**
+	 * The positions benchmarked.
+	 */
+	private Table positions[];
+	/**
+	 * The search of every position, kept so that its tables are allocated once.
+	 */
+	private Search searches[];
+	/**
+	 * Makes the positions, and a search for every one of them.
+	 */
+	@Setup(Level.Trial)
+	public void setUp()
+	{
+		positions=Positions.make(side,fill);
+		searches=new Search[positions.length];
+		for(int i=0;i<positions.length;i++)
+		{
+			Table position=positions[i];
+			Search search=new Search();
+			search.setCurrentState(position);
+			search.setCurrentSearchState(position);
+			search.setCurrentPlayer(new Player("Benchmark",Player.AI,Positions.sideToMove(position)));
+			search.setTranspositionTable(new TranspositionTable());
+			search.setLatencyTarget(0);
+			search.setTime(0);
+			search.setMaxThreats(0);
+			searches[i]=search;
+		}
+	}
+	/**
+	 * Forgets what was learnt in the last call, so that every search begins
+	 * with empty tables.
+	 */
+	@Setup(Level.Invocation)
+	public void clear()
+	{
+		for(Search search:searches)
+			search.clear();
+	}
+	/**
+	 * Stops the threads of the searches, if any.
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		for(Search search:searches)
+			search.shutdown();
+	}
+	/**
+	 * Searches every position to a depth. The positions are not changed, the
+	 * search works on copies of its own.
+	 * @return The sum of the best moves, so that no search can be left out
+	 */
+	private int search(byte searchType, byte searchDepth)
+	{
+		int sum=0;
+		for(int i=0;i<positions.length;i++)
+		{
+			Search search=searches[i];
+			search.setSearchType(searchType);
+			search.setSearchDepth((byte)Math.min(searchDepth,positions[i].getNoOfDs()-1));
+			sum+=search.getBestMove().getIndex();
+		}
+		return sum;
+	}
+	/**
+	 * Searches one ply.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(Positions.COUNT)
+	public int moveGen()
+	{
+		return search(Search.ALPHA_BETA,(byte)1);
+	}
+	/**
+	 * Searches to <code>depth</code> with plain alpha-beta.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(Positions.COUNT)
+	public int alphaBeta()
+	{
+		return search(Search.ALPHA_BETA,depth);
+	}
+	/**
+	 * Searches to <code>depth</code> with principal variation search.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(Positions.COUNT)
+	public int getBestMove()
+	{
+		return search(Search.PRINCIPAL_VARIATION,depth);
+	}
+}
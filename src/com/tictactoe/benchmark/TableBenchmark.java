@@ -0,0 +1,142 @@
+/*
+ * This file is part of KenTacToe, (c) Kenshin Himura, 2013.
+ *
+ * KenTacToe is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KenTacToe is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KenTacToe.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.tictactoe.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tictactoe.table.Table;
+
+/**
+ * The <code>TableBenchmark</code> class measures the methods of
+ * <code>Table</code> the search calls at every node, on tables of every size
+ * and filled to different levels (see <code>Positions</code>). Every call of a
+ * benchmark works on the next position of the set, so no single position is
+ * measured alone.
+ * It needs JMH (jmh-core and jmh-generator-annprocess) on the class path to be
+ * compiled, and is run with <code>org.openjdk.jmh.Main TableBenchmark</code>.
+ * @author Kenshin Himura
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=5,time=1)
+@Measurement(iterations=5,time=1)
+@Fork(1)
+public class TableBenchmark
+{
+	/**
+	 * Number of rows (and columns) of the tables.
+	 */
+	@Param({"3","4","5","6","7","8","9","10","11"})
+	public byte side;
+	/**
+	 * Percentage of the cells of the tables filled.
+	 */
+	@Param({"0","25","50","75"})
+	public int fill;
+	/**
+	 * The positions benchmarked.
+	 */
+	private Table positions[];
+	/**
+	 * An empty cell of every position.
+	 */
+	private byte emptyCells[];
+	/**
+	 * Index of the next position.
+	 */
+	private int next;
+	/**
+	 * Makes the positions.
+	 */
+	@Setup
+	public void setUp()
+	{
+		positions=Positions.make(side,fill);
+		emptyCells=new byte[positions.length];
+		for(int i=0;i<positions.length;i++)
+			emptyCells[i]=positions[i].getFirstDashIndex();
+	}
+	/**
+	 * Gives the index of the next position.
+	 */
+	private int next()
+	{
+		next=(next+1)&(Positions.COUNT-1);
+		return next;
+	}
+	/**
+	 * Copies a table.
+	 */
+	@Benchmark
+	public Table cloneTable()
+	{
+		return positions[next()].clone();
+	}
+	/**
+	 * Signs an empty cell and empties it again, as the search does for every move.
+	 */
+	@Benchmark
+	public long updateTable()
+	{
+		int i=next();
+		Table table=positions[i];
+		table.updateTable(emptyCells[i],Positions.sideToMove(table));
+		long hash=table.getHash();
+		table.updateTable(emptyCells[i],'-');
+		return hash;
+	}
+	/**
+	 * Checks whether a side has won.
+	 */
+	@Benchmark
+	public byte isComplete()
+	{
+		return positions[next()].isComplete();
+	}
+	/**
+	 * Scores a table.
+	 */
+	@Benchmark
+	public long getScore()
+	{
+		return positions[next()].getScore();
+	}
+	/**
+	 * Counts the empty cells of a table.
+	 */
+	@Benchmark
+	public byte getNoOfDs()
+	{
+		return positions[next()].getNoOfDs();
+	}
+}
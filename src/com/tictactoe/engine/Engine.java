@@ -0,0 +1,320 @@
+/*
+ * This file is part of KenTacToe, (c) Kenshin Himura, 2013.
+ *
+ * KenTacToe is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KenTacToe is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KenTacToe.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.tictactoe.engine;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.tictactoe.player.Player;
+import com.tictactoe.search.Search;
+import com.tictactoe.table.Table;
+
+/**
+ * The <code>Engine</code> class runs the AI as a long-lived process driven by
+ * a line-based text protocol over its input and output, much like chess
+ * engines are. One <code>Search</code> is kept for the whole life of the
+ * engine, so its transposition table and move ordering tables are kept from
+ * one move (and one game) to the next, and the JVM stays warmed up.
+ * The commands are:
+ * <ul>
+ * <li><code>position empty n [moves i j ...]</code>: an empty nxn table, with
+ * the moves (cell indices) played from it, X first.</li>
+ * <li><code>position cells side [moves i j ...]</code>: the table written as
+ * by <code>Table.toString()</code>, with side (X or O) to move.</li>
+ * <li><code>go</code>, <code>go depth d</code>, <code>go time ms</code> or
+ * <code>go infinite</code>: search the position, with the depth chosen by the
+ * search, to depth d, for ms milliseconds, or until <code>stop</code>. The
+ * search runs in the background and ends with a line
+ * <code>info depth d score s nodes n nps r time ms</code> followed by
+ * <code>bestmove i</code>.</li>
+ * <li><code>stop</code>: stop the search as soon as possible.</li>
+ * <li><code>threads n</code>: search with n threads.</li>
+ * <li><code>clear</code>: forget everything learnt by earlier searches.</li>
+ * <li><code>isready</code>: answered with <code>readyok</code> once every
+ * earlier command is done.</li>
+ * <li><code>quit</code>: stop and exit.</li>
+ * </ul>
+ * Every other command waits for the search running, if any, to finish. Errors
+ * are answered with a line starting with <code>error</code>.
+ * @author Kenshin Himura
+ *
+ */
+public class Engine
+{
+	/**
+	 * Time between two requests to stop a search, in milliseconds.
+	 */
+	private static final long STOP_INTERVAL=10;
+	/**
+	 * The search used for every position.
+	 */
+	private final Search search=new Search();
+	/**
+	 * Runs the searches in the background, so that commands can still be read.
+	 */
+	private final ExecutorService searcher=Executors.newSingleThreadExecutor();
+	/**
+	 * The search running, or the last one run.
+	 */
+	private Future<?> running;
+	/**
+	 * The current position.
+	 */
+	private Table table=new Table((byte)3,(byte)3);
+	/**
+	 * Sign of the side to move in the current position.
+	 */
+	private char sideToMove='X';
+	/**
+	 * Stream the answers are written to.
+	 */
+	private final PrintStream out;
+	/**
+	 * Constructor of the <code>Engine</code> class.
+	 * @param out Stream the answers are written to
+	 */
+	public Engine(PrintStream out)
+	{
+		this.out=out;
+	}
+	/**
+	 * This method reads and runs commands until <code>quit</code> or the end
+	 * of the input.
+	 * @param in Stream of commands, one per line
+	 * @throws IOException If the commands cannot be read
+	 */
+	public void run(InputStream in) throws IOException
+	{
+		BufferedReader reader=new BufferedReader(new InputStreamReader(in,StandardCharsets.US_ASCII));
+		String line;
+		try
+		{
+			while((line=reader.readLine())!=null)
+				if(!command(line))
+					break;
+			stopSearch();
+		}
+		finally
+		{
+			searcher.shutdownNow();
+			search.shutdown();
+		}
+	}
+	/**
+	 * This method runs one command.
+	 * @param line The command and its arguments
+	 * @return <code>false</code> if the command was <code>quit</code>, <code>true</code> otherwise
+	 */
+	public boolean command(String line)
+	{
+		String words[]=line.trim().split("\\s+");
+		String command=words[0];
+		try
+		{
+			if(command.isEmpty())
+				return true;
+			if(command.equals("quit"))
+			{
+				stopSearch();
+				return false;
+			}
+			if(command.equals("stop"))
+			{
+				stopSearch();
+				return true;
+			}
+			waitForSearch();
+			if(command.equals("position"))
+				position(words);
+			else if(command.equals("go"))
+				go(words);
+			else if(command.equals("threads"))
+				search.setThreads(Integer.parseInt(words[1]));
+			else if(command.equals("clear"))
+				search.clear();
+			else if(command.equals("isready"))
+				answer("readyok");
+			else
+				answer("error Unknown command: "+command);
+		}
+		catch(RuntimeException e)
+		{
+			answer("error "+e.getMessage());
+		}
+		return true;
+	}
+	/**
+	 * Sets up the position of a <code>position</code> command.
+	 */
+	private void position(String words[])
+	{
+		int next;
+		Table newTable;
+		char newSide;
+		if(words[1].equals("empty"))
+		{
+			byte side=Byte.parseByte(words[2]);
+			newTable=new Table(side,side);
+			newSide='X';
+			next=3;
+		}
+		else
+		{
+			newTable=Table.parse(words[1]);
+			if(!words[2].equals("X")&&!words[2].equals("O"))
+				throw new IllegalArgumentException("The side to move must be X or O: "+words[2]);
+			newSide=words[2].charAt(0);
+			next=3;
+		}
+		if((next<words.length)&&words[next].equals("moves"))
+			for(int i=next+1;i<words.length;i++)
+			{
+				byte index=Byte.parseByte(words[i]);
+				if((index<0)||(index>=newTable.getSizeOfTable())||!newTable.isEmpty(index))
+					throw new IllegalArgumentException("Illegal move: "+words[i]);
+				newTable.makeMove(index,newSide);
+				newSide=(newSide=='X')?'O':'X';
+			}
+		table=newTable;
+		sideToMove=newSide;
+	}
+	/**
+	 * Starts the search of a <code>go</code> command in the background.
+	 */
+	private void go(String words[])
+	{
+		if((table.isComplete()!=-1)||(table.getNoOfDs()==0))
+		{
+			answer("bestmove -1");
+			return;
+		}
+		final Table position=table.clone();
+		search.setCurrentState(position);
+		search.setCurrentSearchState(position);
+		search.setCurrentPlayer(new Player("Engine","AI",sideToMove));
+		search.setSearchDepth((byte)(position.getNoOfDs()-1));
+		search.setTime(0);
+		search.setLatencyTarget(Search.DEFAULT_LATENCY_TARGET);
+		if(words.length>1)
+		{
+			if(words[1].equals("depth"))
+			{
+				search.setSearchDepth((byte)Math.min(position.getNoOfDs()-1,Integer.parseInt(words[2])));
+				search.setTime(Float.POSITIVE_INFINITY);
+			}
+			else if(words[1].equals("time"))
+				search.setTime(Float.parseFloat(words[2]));
+			else if(words[1].equals("infinite"))
+				search.setTime(Float.POSITIVE_INFINITY);
+			else
+				throw new IllegalArgumentException("Unknown go mode: "+words[1]);
+		}
+		running=searcher.submit(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				long startTime=System.currentTimeMillis();
+				byte bestMove=search.getBestMove().getIndex();
+				answer("info depth "+Math.max(0,search.getCompletedDepth())+" score "+search.getBestScore()
+						+" nodes "+search.getNodes()+" nps "+search.getStats().getNodesPerSecond()
+						+" time "+(System.currentTimeMillis()-startTime));
+				answer("bestmove "+bestMove);
+			}
+		});
+	}
+	/**
+	 * Stops the search running, if any, and waits for it to finish. The
+	 * search is asked to stop again and again, as it only stops once it has
+	 * completed its first iteration, and may not even have started yet.
+	 */
+	private void stopSearch()
+	{
+		while((running!=null)&&!running.isDone())
+		{
+			search.stop();
+			try
+			{
+				running.get(STOP_INTERVAL,TimeUnit.MILLISECONDS);
+			}
+			catch(TimeoutException e)
+			{
+				//not stopped yet, ask again
+			}
+			catch(InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				return;
+			}
+			catch(ExecutionException e)
+			{
+				answer("error "+e.getCause());
+			}
+		}
+	}
+	/**
+	 * Waits for the search running, if any, to finish.
+	 */
+	private void waitForSearch()
+	{
+		if(running==null)
+			return;
+		try
+		{
+			running.get();
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		catch(ExecutionException e)
+		{
+			answer("error "+e.getCause());
+		}
+		running=null;
+	}
+	/**
+	 * Writes an answer line. Called from both the command and the search threads.
+	 */
+	private synchronized void answer(String line)
+	{
+		out.println(line);
+		out.flush();
+	}
+	/**
+	 * Runs the engine over the standard input and output.
+	 * @param args Not used
+	 * @throws IOException If the commands cannot be read
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		Search.calibrate();
+		new Engine(System.out).run(System.in);
+	}
+}
@@ -28,8 +28,9 @@ import com.tictactoe.move.*;
 /**
  * The <code>Game</code> class is designed to be a class which holds any type of game,
  * but in this program, it is defined as if it is a tic tac toe game by default,
- * for convenience. Thus, it has a table called gameGrid, and two players, and a
- * reference to the current player of the game. It has a status indicator for whether
+ * for convenience. Thus, it has a session holding the table, the two players and
+ * the current player of the game (see <code>GameSession</code>), which is replaced
+ * by a new one after every move. It has a status indicator for whether
  * the game is over. Also, a search is there, for use by the AI. (Later, we may add a
  * moves list to store the different moves made in the right order, for review or
  * other purposes.)
@@ -39,24 +40,22 @@ import com.tictactoe.move.*;
 public class Game
 {
 	/**
-	 * Stores the current table of the game.
-	 * Primarily used for displaying, processing and passing as argument to the
-	 * various methods the <code>Game</code> class can make use of.
+	 * The AI searches with <code>Search</code> (alpha-beta).
 	 */
-	private Table gameGrid;
+	public static final byte ALPHA_BETA_AI=0;
 	/**
-	 * Stores the first <code>Player</code>.
+	 * The AI searches with <code>MonteCarloSearch</code>, which plays better on
+	 * tables larger than 7x7: in the time it is given, alpha-beta searches only
+	 * five or six plies of their 64 and more moves, whereas the Monte Carlo
+	 * search plays its games out to the end.
 	 */
-	private Player playerOne;
+	public static final byte MONTE_CARLO_AI=1;
 	/**
-	 * Stores the second <code>Player</code>.
+	 * Stores the current state of the game: the table, both players (the first
+	 * signs as X, the second as O) and the player to move.
+	 * Replaced by a new session after every move.
 	 */
-	private Player playerTwo;
-	/**
-	 * Is a reference to the current player, and shifts between playerOne and
-	 * playerTwo between turns.
-	 */
-	private Player currentPlayer;
+	private GameSession session;
 	/**
 	 * An object of the <code>Search</code> class, which can be used by the AI.
 	 */
@@ -72,6 +71,39 @@ public class Game
 	 * Initialized to '-1' to mean value not set.
 	 */
 	private byte searchDepth=-1;
+	/**
+	 * Remaining time on the AI's game clock in milliseconds.
+	 * Initialized to '-1' to mean no clock, in which case the AI searches
+	 * to a fixed depth.
+	 */
+	private long clockTime=-1;
+	/**
+	 * Time added to the AI's game clock after every move, in milliseconds.
+	 */
+	private long clockIncrement=0;
+	/**
+	 * Number of threads the AI searches with.
+	 */
+	private int threads=1;
+	/**
+	 * The way the AI searches with more than one thread,
+	 * <code>Search.ROOT_SPLITTING</code> or <code>Search.LAZY_SMP</code>.
+	 */
+	private byte parallelType=Search.ROOT_SPLITTING;
+	/**
+	 * The AI which plays for the AI player, <code>ALPHA_BETA_AI</code> (default)
+	 * or <code>MONTE_CARLO_AI</code>.
+	 */
+	private byte ai=ALPHA_BETA_AI;
+	/**
+	 * Time the Monte Carlo AI takes per move, in milliseconds, if there is no clock.
+	 */
+	private float monteCarloTime=MonteCarloSearch.DEFAULT_TIME;
+	/**
+	 * The Monte Carlo AI, kept from one move to the next so that its pool of
+	 * nodes is allocated once.
+	 */
+	private MonteCarloSearch monteCarloSearch;
 	/**
 	 * Default constructor of the <code>Game</code> class.
 	 * Creates a 3x3 Table for use with the game and a two players,
@@ -79,9 +111,7 @@ public class Game
 	 */
 	public Game()
 	{
-		gameGrid=new Table((byte)3,(byte)3);
-		playerOne=new Player("UserPlayer");
-		playerTwo=new Player();
+		session=new GameSession((byte)3,new Player("UserPlayer",'X'),new Player('O'));
 		currentSearch=new Search();
 	}
 	/**
@@ -92,9 +122,7 @@ public class Game
 	 */
 	public Game(byte gridSize)
 	{
-		gameGrid=new Table(gridSize,gridSize);
-		playerOne=new Player("UserPlayer");
-		playerTwo=new Player();
+		session=new GameSession(gridSize,new Player("UserPlayer",'X'),new Player('O'));
 		currentSearch=new Search();
 	}
 	/**
@@ -108,9 +136,7 @@ public class Game
 	 */
 	public Game(byte gridSize,String userName)
 	{
-		gameGrid=new Table(gridSize,gridSize);
-		playerOne=new Player(userName);
-		playerTwo=new Player();
+		session=new GameSession(gridSize,new Player(userName,'X'),new Player('O'));
 		currentSearch=new Search();
 	}
 	/**
@@ -128,17 +154,10 @@ public class Game
 	 */
 	public Game(byte gridSize,String userName,byte turn)
 	{
-		gameGrid=new Table(gridSize,gridSize);
 		if(turn==1)
-		{
-			playerOne=new Player(userName);
-			playerTwo=new Player();
-		}
+			session=new GameSession(gridSize,new Player(userName,'X'),new Player('O'));
 		else
-		{
-			playerOne=new Player();
-			playerTwo=new Player(userName);
-		}
+			session=new GameSession(gridSize,new Player('X'),new Player(userName,'O'));
 		currentSearch=new Search();
 	}
 	/**
@@ -158,17 +177,10 @@ public class Game
 	 */
 	public Game(byte gridSize,String userName,byte turn, byte searchDepth)
 	{
-		gameGrid=new Table(gridSize,gridSize);
 		if(turn==1)
-		{
-			playerOne=new Player(userName);
-			playerTwo=new Player();
-		}
+			session=new GameSession(gridSize,new Player(userName,'X'),new Player('O'));
 		else
-		{
-			playerOne=new Player();
-			playerTwo=new Player(userName);
-		}
+			session=new GameSession(gridSize,new Player('X'),new Player(userName,'O'));
 		currentSearch=new Search();
 		if((searchDepth>0)&&(searchDepth<=(gridSize*gridSize)))	
 			setSearchDepth(searchDepth);
@@ -182,9 +194,7 @@ public class Game
 	 */
 	public Game(byte gridSize, String userOneName, String userTwoName)
 	{
-		gameGrid=new Table(gridSize,gridSize);
-		playerOne=new Player(userOneName);
-		playerTwo=new Player(userTwoName);
+		session=new GameSession(gridSize,new Player(userOneName,'X'),new Player(userTwoName,'O'));
 		currentSearch=new Search();
 	}
 	/**
@@ -195,6 +205,44 @@ public class Game
 	public void setSearchDepth(byte searchDepth) {
 		this.searchDepth = searchDepth;
 	}
+	/**
+	 * This method is used to play with a game clock for the AI. Every move
+	 * the AI gets a slice of its remaining time (see <code>Search.getTimeSlice()</code>),
+	 * the time it takes is taken off its clock and the increment is added.
+	 * @param clockTime Time on the AI's clock at the start, in milliseconds
+	 * @param clockIncrement Time added to the AI's clock after every move, in milliseconds
+	 */
+	public void setClock(long clockTime, long clockIncrement) {
+		this.clockTime = clockTime;
+		this.clockIncrement = clockIncrement;
+	}
+	/**
+	 * Generic getter method to get the current state of the game.
+	 * @return The current session of the game
+	 */
+	public GameSession getSession() {
+		return session;
+	}
+	/**
+	 * This method is used to let the AI search with more than one thread.
+	 * @param threads Number of threads the AI searches with
+	 * @param parallelType <code>Search.ROOT_SPLITTING</code> or <code>Search.LAZY_SMP</code>
+	 * (the Monte Carlo AI always shares one tree between its threads)
+	 */
+	public void setThreads(int threads, byte parallelType) {
+		this.threads = threads;
+		this.parallelType = parallelType;
+	}
+	/**
+	 * This method is used to choose the AI which plays for the AI player.
+	 * @param ai <code>ALPHA_BETA_AI</code> or <code>MONTE_CARLO_AI</code>
+	 * @param monteCarloTime Time the Monte Carlo AI takes per move in
+	 * milliseconds, if there is no clock
+	 */
+	public void setAI(byte ai, float monteCarloTime) {
+		this.ai = ai;
+		this.monteCarloTime = monteCarloTime;
+	}
 	/**
 	 * This is the constructor called in the main function of the program
 	 * if a 3x3 grid is to e used by default.
@@ -204,9 +252,7 @@ public class Game
 	 */
 	public Game(String userName)
 	{
-		gameGrid=new Table((byte)3,(byte)3);
-		playerOne=new Player(userName);
-		playerTwo=new Player();
+		session=new GameSession((byte)3,new Player(userName,'X'),new Player('O'));
 		currentSearch=new Search();
 	}
 	/**
@@ -214,16 +260,16 @@ public class Game
 	 * Initially, simply used as a debug-friendly method to know if things were
 	 * working. Now, its the start of the program once it receives enough
 	 * parameters for creating the game. It tells the sign of the players and
-	 * their respective names. Also sets the reference of current player to
-	 * player one.
+	 * their respective names.
 	 */
 	public void init()
 	{
 		System.out.println("Game Initialized...");
-		gameGrid.printTable();
+		session.getTable().printTable();
+		Player playerOne=session.getPlayerOne();
+		Player playerTwo=session.getPlayerTwo();
 		System.out.println(playerOne.getPlayerName()+" "+playerOne.getPlayerSign());
 		System.out.println(playerTwo.getPlayerName()+" "+playerTwo.getPlayerSign());
-		currentPlayer=playerOne;
 	}
 	/**
 	 * This method is used to get inputs for the table from both players.
@@ -233,18 +279,43 @@ public class Game
 	 */
 	public void getInput()
 	{
+		Player currentPlayer=session.getCurrentPlayer();
+		Table gameGrid=session.getTable();
 		byte index=gameGrid.getFirstDashIndex();
 		Move moveToMake;
 		@SuppressWarnings("resource")
 		Scanner inputStream=new Scanner(System.in);
-		if(currentPlayer.getPlayerType()=="AI")
+		if(currentPlayer.isAI()&&(ai==MONTE_CARLO_AI))
+		{
+			if(monteCarloSearch==null)
+				monteCarloSearch=new MonteCarloSearch();
+			monteCarloSearch.setCurrentState(gameGrid);
+			monteCarloSearch.setCurrentPlayer(currentPlayer);
+			monteCarloSearch.setTime(monteCarloTime);
+			monteCarloSearch.setClock(clockTime,clockIncrement);
+			monteCarloSearch.setThreads(threads);
+			long startTime=System.currentTimeMillis();
+			moveToMake=monteCarloSearch.getBestMove();
+			if(clockTime>=0)
+				clockTime=Math.max(0,clockTime-(System.currentTimeMillis()-startTime))+clockIncrement;
+			session=session.play(moveToMake.getIndex());
+		}
+		else if(currentPlayer.isAI())
 		{
 			if(searchDepth!=-1)
 				currentSearch=new Search(gameGrid,currentPlayer,searchDepth);
 			else
 				currentSearch=new Search(gameGrid,currentPlayer);
+			if(clockTime>=0)
+				currentSearch.setClock(clockTime,clockIncrement);
+			currentSearch.setThreads(threads);
+			currentSearch.setParallelType(parallelType);
+			long startTime=System.currentTimeMillis();
 			moveToMake=currentSearch.getBestMove();
-			gameGrid=gameGrid.makeMove(moveToMake);
+			currentSearch.shutdown();
+			if(clockTime>=0)
+				clockTime=Math.max(0,clockTime-(System.currentTimeMillis()-startTime))+clockIncrement;
+			session=session.play(moveToMake.getIndex());
 		}
 		else
 		{
@@ -258,15 +329,11 @@ public class Game
 					index=inputStream.nextByte();
 				}while((index<0)||(index>gameGrid.getSizeOfTable()));
 			}while(!gameGrid.isEmpty((byte)(index-1)));
-			gameGrid.updateTable((byte)(index-1), currentPlayer.getPlayerSign());
+			session=session.play((byte)(index-1));
 		}
-		if(currentPlayer==playerOne)
-			currentPlayer=playerTwo;
-		else
-			currentPlayer=playerOne;
 		System.out.println("Grid updated...");
-		gameGrid.printTable();
-		if(gameGrid.isComplete()!=-1)
+		session.getTable().printTable();
+		if(session.isOver())
 			gameOver=true;
 	}
 	/**
@@ -277,12 +344,14 @@ public class Game
 	public void play()
 	{
 		init();
-		for(int i=0;((gameOver==false)&&(i<gameGrid.getSizeOfTable()));i++)
+		while(gameOver==false)
 			getInput();
-		if(gameGrid.isComplete()==1)
+		Player playerOne=session.getPlayerOne();
+		Player playerTwo=session.getPlayerTwo();
+		if(session.getResult()==1)
 			System.out.println(playerOne.getPlayerName()+
 					"("+playerOne.getPlayerType()+") won!");
-		else if(gameGrid.isComplete()==0)
+		else if(session.getResult()==0)
 			System.out.println(playerTwo.getPlayerName()+
 					"("+playerTwo.getPlayerType()+") won!");
 		else
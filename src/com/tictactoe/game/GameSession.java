@@ -0,0 +1,195 @@
+/*
+ * This file is part of KenTacToe, (c) Kenshin Himura, 2013.
+ *
+ * KenTacToe is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KenTacToe is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KenTacToe.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.tictactoe.game;
+
+import com.tictactoe.player.Player;
+import com.tictactoe.search.Search;
+import com.tictactoe.table.Table;
+
+/**
+ * The <code>GameSession</code> class holds the state of one game at one point:
+ * its table, its two players and the player to move. A session never changes:
+ * making a move gives a new session, and the table of a session is never handed
+ * out, only copies of it. So a session can be read by any number of threads at
+ * once, and a game shared between threads only needs its current session to be
+ * replaced atomically (eg, with <code>AtomicReference.compareAndSet()</code>).
+ * @author Kenshin Himura
+ *
+ */
+public final class GameSession
+{
+	/**
+	 * The table of the game. Never changed, nor handed out.
+	 */
+	private final Table table;
+	/**
+	 * The player who signs as X, and moves first.
+	 */
+	private final Player playerOne;
+	/**
+	 * The player who signs as O.
+	 */
+	private final Player playerTwo;
+	/**
+	 * The player to move.
+	 */
+	private final Player currentPlayer;
+	/**
+	 * Index of the cell of the last move, -1 if none.
+	 */
+	private final byte lastMove;
+	/**
+	 * Constructor of <code>GameSession</code> used to start a game on an empty
+	 * square table.
+	 * @param gridSize Number of rows (and columns) of the table.
+	 * @param playerOne The player who signs as X, and moves first.
+	 * @param playerTwo The player who signs as O.
+	 * @throws IllegalArgumentException If the players do not sign as X and O
+	 */
+	public GameSession(byte gridSize, Player playerOne, Player playerTwo)
+	{
+		if((playerOne.getPlayerSign()!='X')||(playerTwo.getPlayerSign()!='O'))
+			throw new IllegalArgumentException("Player one signs as X, player two as O");
+		this.table=new Table(gridSize,gridSize);
+		this.playerOne=playerOne;
+		this.playerTwo=playerTwo;
+		this.currentPlayer=playerOne;
+		this.lastMove=-1;
+	}
+	/**
+	 * Constructor of <code>GameSession</code> used by <code>play()</code>.
+	 */
+	private GameSession(Table table, Player playerOne, Player playerTwo, Player currentPlayer, byte lastMove)
+	{
+		this.table=table;
+		this.playerOne=playerOne;
+		this.playerTwo=playerTwo;
+		this.currentPlayer=currentPlayer;
+		this.lastMove=lastMove;
+	}
+	/**
+	 * This method is used to make a move of the player to move.
+	 * @param index Index of the cell to be signed.
+	 * @return The session after the move; this session is not changed.
+	 * @throws IllegalStateException If the game is over
+	 * @throws IllegalArgumentException If the cell does not exist or is not empty
+	 */
+	public GameSession play(byte index)
+	{
+		if(isOver())
+			throw new IllegalStateException("The game is over");
+		if((index<0)||(index>=table.getSizeOfTable())||!table.isEmpty(index))
+			throw new IllegalArgumentException("Illegal move: "+index);
+		Table next=table.clone();
+		next.makeMove(index,currentPlayer.getPlayerSign());
+		return new GameSession(next,playerOne,playerTwo,(currentPlayer==playerOne)?playerTwo:playerOne,index);
+	}
+	/**
+	 * This method is used to create a search for the player to move, on its
+	 * own copy of the table.
+	 * @return A search of the current position for the player to move
+	 */
+	public Search newSearch()
+	{
+		return new Search(getTable(),currentPlayer);
+	}
+	/**
+	 * This method is used to know if the game is over.
+	 * @return <code>true</code> if a side has won or no cell is left.
+	 */
+	public boolean isOver()
+	{
+		return (table.isComplete()!=-1)||(table.getNoOfDs()==0);
+	}
+	/**
+	 * This method is used to know who has won the game.
+	 * @return 1 if X has won, 0 if O has won, -1 if none has (yet)
+	 */
+	public byte getResult()
+	{
+		return table.isComplete();
+	}
+	/**
+	 * Generic getter method to get the table of the game.
+	 * @return A copy of the table, which may be changed freely.
+	 */
+	public Table getTable()
+	{
+		return table.clone();
+	}
+	/**
+	 * Generic getter method to get the number of rows (and columns) of the table.
+	 * @return Number of rows of the table
+	 */
+	public byte getGridSize()
+	{
+		return table.getNoOfRows();
+	}
+	/**
+	 * Generic getter method to get the value of a cell of the table.
+	 * @param index Index of the cell
+	 * @return 'X', 'O' or '-'
+	 */
+	public char getValue(byte index)
+	{
+		return table.getValue(index);
+	}
+	/**
+	 * Generic getter method to get the first player.
+	 * @return The player who signs as X
+	 */
+	public Player getPlayerOne()
+	{
+		return playerOne;
+	}
+	/**
+	 * Generic getter method to get the second player.
+	 * @return The player who signs as O
+	 */
+	public Player getPlayerTwo()
+	{
+		return playerTwo;
+	}
+	/**
+	 * Generic getter method to get the player to move.
+	 * @return The player to move
+	 */
+	public Player getCurrentPlayer()
+	{
+		return currentPlayer;
+	}
+	/**
+	 * Generic getter method to get the last move.
+	 * @return Index of the cell of the last move, -1 if none
+	 */
+	public byte getLastMove()
+	{
+		return lastMove;
+	}
+	/**
+	 * This method is used to write the table of the game, as by
+	 * <code>Table.toString()</code>.
+	 * @return The values of the cells of the table
+	 */
+	@Override
+	public String toString()
+	{
+		return table.toString();
+	}
+}
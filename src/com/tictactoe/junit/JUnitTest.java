@@ -20,8 +20,26 @@ package com.tictactoe.junit;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
 import org.junit.Test;
 
+import com.tictactoe.perft.Perft;
+import com.tictactoe.player.Player;
+import com.tictactoe.search.MonteCarloSearch;
+import com.tictactoe.search.Search;
+import com.tictactoe.search.SearchStats;
+import com.tictactoe.search.ThreatSearch;
+import com.tictactoe.selfplay.Corpus;
+import com.tictactoe.selfplay.GameRecord;
+import com.tictactoe.selfplay.SelfPlay;
 import com.tictactoe.table.Table;
 
 public class JUnitTest {
@@ -37,4 +55,369 @@ public class JUnitTest {
 		t.printTable();
 	}
 
+	@Test
+	public void testCloneAndComplete() {
+		Table t=new Table((byte)11,(byte)11);
+		for(byte i=0;i<11;i++)
+			t.updateTable((byte)(i*11+(10-i)),'O');
+		Table c=t.clone();
+		assertEquals(0,c.isComplete());
+		c.updateTable((byte)10,'-');
+		assertEquals(-1,c.isComplete());
+		assertEquals(0,t.isComplete());
+		assertEquals(1,c.getNoOfDs()-t.getNoOfDs());
+		assertEquals(120,c.getFirstDashIndex());
+	}
+
+	@Test
+	public void testHashTransposition() {
+		Table a=new Table((byte)3,(byte)3);
+		Table b=new Table((byte)3,(byte)3);
+		a.makeMove((byte)0,'X');
+		a.makeMove((byte)4,'O');
+		a.makeMove((byte)8,'X');
+		b.makeMove((byte)8,'X');
+		b.makeMove((byte)4,'O');
+		b.makeMove((byte)0,'X');
+		assertEquals(a.getHash(),b.getHash());
+		b.unMakeMove((byte)8);
+		assertNotEquals(a.getHash(),b.getHash());
+		b.makeMove((byte)8,'O');
+		assertNotEquals(a.getHash(),b.getHash());
+	}
+
+	@Test
+	public void testIncrementalCounters() {
+		Random random=new Random(11);
+		for(byte side=3;side<=11;side+=2)
+		{
+			Table table=new Table(side,side);
+			byte moves[]=new byte[table.getSizeOfTable()];
+			char sign='X';
+			for(int m=0;m<moves.length;m++)
+			{
+				do
+					moves[m]=(byte)random.nextInt(moves.length);
+				while(!table.isEmpty(moves[m]));
+				table.makeMove(moves[m],sign);
+				sign=(sign=='X')?'O':'X';
+				assertSameCounters(Table.parse(table.toString()),table);
+			}
+			for(int m=moves.length-1;m>=0;m--)
+			{
+				table.unMakeMove(moves[m]);
+				assertSameCounters(Table.parse(table.toString()),table);
+			}
+			assertSameCounters(new Table(side,side),table);
+		}
+	}
+
+	/**
+	 * Checks that two tables agree on everything worked out from their
+	 * incremental counters: line counts, totals, free, open and complete lines,
+	 * and hashes.
+	 */
+	private static void assertSameCounters(Table expected, Table actual) {
+		String cells=expected.toString();
+		assertEquals(cells,expected.toString(),actual.toString());
+		assertEquals(cells,expected.getScore(),actual.getScore());
+		assertEquals(cells,expected.getXScore(),actual.getXScore());
+		assertEquals(cells,expected.getOScore(),actual.getOScore());
+		assertEquals(cells,expected.linesWithoutO(),actual.linesWithoutO());
+		assertEquals(cells,expected.linesWithoutX(),actual.linesWithoutX());
+		assertEquals(cells,expected.isComplete(),actual.isComplete());
+		assertEquals(cells,expected.getNoOfDs(),actual.getNoOfDs());
+		assertEquals(cells,expected.getHash(),actual.getHash());
+		assertEquals(cells,expected.getCanonicalHash(),actual.getCanonicalHash());
+	}
+
+	@Test
+	public void testCanonicalHash() {
+		Table first=new Table((byte)5,(byte)5);
+		first.makeMove((byte)0,'X');
+		first.makeMove((byte)7,'O');
+		for(int t=0;t<first.getNoOfTransforms();t++)
+		{
+			Table other=new Table((byte)5,(byte)5);
+			other.makeMove(first.transformIndex(t,(byte)0),'X');
+			other.makeMove(first.transformIndex(t,(byte)7),'O');
+			assertEquals(first.getCanonicalHash(),other.getCanonicalHash());
+			int transform=other.getCanonicalTransform();
+			byte canonical=other.transformIndex(transform,(byte)3);
+			assertEquals(3,other.inverseTransformIndex(transform,canonical));
+		}
+		Table edge=new Table((byte)5,(byte)5);
+		edge.makeMove((byte)1,'X');
+		edge.makeMove((byte)7,'O');
+		assertNotEquals(first.getCanonicalHash(),edge.getCanonicalHash());
+	}
+
+	@Test
+	public void testExactScores() {
+		Table center=new Table((byte)11,(byte)11);
+		Table corner=new Table((byte)11,(byte)11);
+		assertEquals(0,center.getScore());
+		center.makeMove((byte)60,'X');
+		corner.makeMove((byte)0,'X');
+		assertTrue(center.getScore()>corner.getScore());
+		center.makeMove((byte)0,'O');
+		corner.makeMove((byte)60,'O');
+		assertEquals(center.getScore(),-corner.getScore());
+		for(byte i=1;i<=11;i++)
+			if(i!=6)
+				center.makeMove((byte)(i*10),'X');
+		assertEquals(center.getWinScore(),center.getScore());
+		assertTrue(Math.abs(corner.getScore())<(corner.getWinScore()/2));
+	}
+
+	@Test
+	public void testSelfPlayCorpus() throws IOException {
+		SelfPlay selfPlay=new SelfPlay();
+		selfPlay.setGames(7);
+		selfPlay.setSearchDepth((byte)8);
+		selfPlay.setRandomPlies(2);
+		selfPlay.setScores(true);
+		selfPlay.setWorkers(2);
+		selfPlay.setChunkSize(3);
+		selfPlay.setSeed(42);
+		ByteArrayOutputStream out=new ByteArrayOutputStream();
+		selfPlay.play(out,null);
+		DataInputStream in=new DataInputStream(new ByteArrayInputStream(out.toByteArray()));
+		Corpus.readHeader(in);
+		int games=0;
+		List<GameRecord> chunk;
+		while((chunk=Corpus.readChunk(in))!=null)
+			for(GameRecord game:chunk)
+			{
+				Table t=new Table(game.getSide(),game.getSide());
+				char sign='X';
+				for(byte move:game.getMoves())
+				{
+					assertTrue(t.isEmpty(move));
+					assertEquals(-1,t.isComplete());
+					t.makeMove(move,sign);
+					sign=(sign=='X')?'O':'X';
+				}
+				assertEquals(t.isComplete(),game.getResult());
+				assertEquals(game.getMoves().length,game.getScores().length);
+				games++;
+			}
+		assertEquals(7,games);
+	}
+
+	@Test
+	public void testTruncatedCorpus() throws IOException {
+		ByteArrayOutputStream bytes=new ByteArrayOutputStream();
+		DataOutputStream out=new DataOutputStream(bytes);
+		Corpus.writeHeader(out);
+		ByteArrayOutputStream records=new ByteArrayOutputStream();
+		new GameRecord((byte)3,new byte[]{4,0,8},(byte)-1,null).write(new DataOutputStream(records));
+		new GameRecord((byte)3,new byte[]{0,3,1,4,2},(byte)1,new long[]{5,-5,7,-7,9}).write(new DataOutputStream(records));
+		Corpus.writeChunk(out,2,records.toByteArray(),records.size());
+		out.flush();
+		byte corpus[]=bytes.toByteArray();
+		int header=5;
+		DataInputStream in=new DataInputStream(new ByteArrayInputStream(corpus));
+		Corpus.readHeader(in);
+		List<GameRecord> chunk=Corpus.readChunk(in);
+		assertEquals(2,chunk.size());
+		assertArrayEquals(new byte[]{0,3,1,4,2},chunk.get(1).getMoves());
+		assertArrayEquals(new long[]{5,-5,7,-7,9},chunk.get(1).getScores());
+		assertNull(Corpus.readChunk(in));
+		//cut off anywhere inside the chunk
+		for(int length=header+1;length<corpus.length;length++)
+		{
+			in=new DataInputStream(new ByteArrayInputStream(corpus,0,length));
+			Corpus.readHeader(in);
+			try
+			{
+				Corpus.readChunk(in);
+				fail("Read a chunk cut off after "+length+" bytes");
+			}
+			catch(EOFException e)
+			{
+				fail("Truncated chunk taken for the end of the corpus");
+			}
+			catch(IOException e)
+			{
+				assertEquals("Truncated chunk",e.getMessage());
+			}
+		}
+	}
+
+	@Test
+	public void testPerft() {
+		Table t=new Table((byte)3,(byte)3);
+		Perft full=Perft.walk(t,'X',9);
+		assertEquals(549946,full.getNodes());
+		assertEquals(255168,full.getLeaves());
+		assertEquals(131184,full.getXWins());
+		assertEquals(77904,full.getOWins());
+		assertEquals(46080,full.getDraws());
+		Perft parallel=Perft.walkParallel(t,'X',9,3);
+		assertEquals(full.getNodes(),parallel.getNodes());
+		assertEquals(full.getXWins(),parallel.getXWins());
+		assertEquals(full.getDraws(),parallel.getDraws());
+		assertEquals(504,Perft.walk(t,'X',3).getLeaves());
+		assertEquals(9,Perft.walkParallel(t,'X',1,2).getLeaves());
+	}
+
+	@Test
+	public void testMonteCarlo() {
+		MonteCarloSearch search=new MonteCarloSearch(Table.parse("XX-OO----"),new Player('O'));
+		assertEquals(5,search.getBestMove().getIndex());
+		search=new MonteCarloSearch(Table.parse("O-O-X----"),new Player('X'));
+		search.setTime(10000);
+		search.setMaxPlayouts(20000);
+		search.setCapacity(1000);
+		assertEquals(1,search.getBestMove().getIndex());
+		assertTrue(search.getNodeCount()<=1000);
+		assertEquals(20032,search.getPlayouts());
+		search.setThreads(4);
+		assertEquals(1,search.getBestMove().getIndex());
+		assertTrue(search.getNodeCount()<=1000);
+		assertTrue(search.getPlayouts()>=20000);
+		search.shutdown();
+	}
+
+	@Test
+	public void testThreatSearch() {
+		Table table=Table.parse("O---OOXX--O-XX--");
+		ThreatSearch threatSearch=new ThreatSearch();
+		assertEquals(15,threatSearch.findWin(table,'X'));
+		assertEquals(-1,threatSearch.findWin(new Table((byte)4,(byte)4),'X'));
+		Search search=new Search(table,new Player('X'),(byte)1);
+		search.setLatencyTarget(0);
+		assertEquals(15,search.getBestMove().getIndex());
+		assertEquals(table.getWinScore(),search.getBestScore());
+		assertEquals("O---OOXX--O-XX--",table.toString());
+	}
+
+	@Test
+	public void testRootSplitting() {
+		for(byte side=3;side<=5;side++)
+			for(Table position:positions(side,side+1,6))
+			{
+				Search serial=search(position,(byte)4,Search.PRINCIPAL_VARIATION);
+				byte move=serial.getBestMove().getIndex();
+				for(int threads=2;threads<=4;threads+=2)
+				{
+					Search parallel=search(position,(byte)4,Search.PRINCIPAL_VARIATION);
+					parallel.setThreads(threads);
+					parallel.setParallelType(Search.ROOT_SPLITTING);
+					assertEquals(position.toString(),move,parallel.getBestMove().getIndex());
+					assertEquals(position.toString(),serial.getBestScore(),parallel.getBestScore());
+					parallel.shutdown();
+				}
+			}
+	}
+
+	@Test
+	public void testPrincipalVariation() {
+		for(byte side=3;side<=5;side++)
+			for(int moves=0;moves<=side*side/2;moves+=side)
+				for(Table position:positions(side,moves,4))
+				{
+					byte depth=(byte)Math.min(4,position.getNoOfDs()-1);
+					Search alphaBeta=search(position,depth,Search.ALPHA_BETA);
+					alphaBeta.getBestMove();
+					Search principalVariation=search(position,depth,Search.PRINCIPAL_VARIATION);
+					principalVariation.getBestMove();
+					assertEquals(position.toString(),alphaBeta.getBestScore(),principalVariation.getBestScore());
+					//the same search again, with the entries of the other search type in its table
+					principalVariation.setSearchType(Search.ALPHA_BETA);
+					principalVariation.getBestMove();
+					assertTrue(hitsTable(principalVariation));
+					assertEquals(position.toString(),alphaBeta.getBestScore(),principalVariation.getBestScore());
+					alphaBeta.setSearchType(Search.PRINCIPAL_VARIATION);
+					alphaBeta.getBestMove();
+					assertTrue(hitsTable(alphaBeta));
+					assertEquals(position.toString(),alphaBeta.getBestScore(),principalVariation.getBestScore());
+				}
+	}
+
+	@Test
+	public void testSearchStats() {
+		Search search=search(new Table((byte)4,(byte)4),(byte)4,Search.PRINCIPAL_VARIATION);
+		search.setTime(Float.POSITIVE_INFINITY);
+		search.getBestMove();
+		SearchStats stats=search.getStats();
+		assertEquals(4,stats.getDeepestDepth());
+		assertStatsAddUp(search);
+		//a shallower search books nothing to the depths of the deeper one
+		search.setTime(0);
+		search.setSearchDepth((byte)2);
+		search.getBestMove();
+		assertEquals(2,stats.getDeepestDepth());
+		assertStatsAddUp(search);
+		for(int depth=3;depth<=4;depth++)
+		{
+			assertEquals(0,stats.getNodes(depth));
+			assertEquals(0,stats.getLeaves(depth));
+			assertEquals(0,stats.getCutOffs(depth));
+		}
+	}
+
+	/**
+	 * Checks that the statistics of the last search add up over its depths.
+	 */
+	private static void assertStatsAddUp(Search search) {
+		SearchStats stats=search.getStats();
+		long nodes=0;
+		for(int depth=0;depth<=stats.getDeepestDepth();depth++)
+			nodes+=stats.getNodes(depth);
+		assertEquals(stats.getNodes(),nodes);
+		assertEquals(search.getNodes(),stats.getNodes());
+		assertTrue(stats.getNodes()>0);
+		assertTrue(stats.getLeaves()<=stats.getNodes());
+		assertTrue((stats.getHitRate()>=0)&&(stats.getHitRate()<=1));
+	}
+
+	/**
+	 * Tells whether the last search found positions in its transposition
+	 * table, or searched none (a move winning at once is played unsearched).
+	 */
+	private static boolean hitsTable(Search search) {
+		return (search.getStats().getNodes()==0)||(search.getStats().getHits()>0);
+	}
+
+	/**
+	 * Makes positions by playing random moves, X first, from a fixed seed,
+	 * leaving out those already won.
+	 */
+	private static Table[] positions(byte side, int moves, int count) {
+		Random random=new Random(side*31+moves);
+		Table positions[]=new Table[count];
+		for(int i=0;i<count;)
+		{
+			Table table=new Table(side,side);
+			char sign='X';
+			for(int m=0;m<moves;m++)
+			{
+				byte index;
+				do
+					index=(byte)random.nextInt(side*side);
+				while(!table.isEmpty(index));
+				table.makeMove(index,sign);
+				sign=(sign=='X')?'O':'X';
+			}
+			if(table.isComplete()==-1)
+				positions[i++]=table;
+		}
+		return positions;
+	}
+
+	/**
+	 * Makes a search of a position made by <code>positions()</code> to a
+	 * fixed depth, without threat search.
+	 */
+	private static Search search(Table position, byte depth, byte searchType) {
+		char sign=(((position.getSizeOfTable()-position.getNoOfDs())%2)==0)?'X':'O';
+		Search search=new Search(position,new Player(sign),depth);
+		search.setLatencyTarget(0);
+		search.setMaxThreats(0);
+		search.setSearchType(searchType);
+		return search;
+	}
+
 }
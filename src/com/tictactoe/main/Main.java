@@ -18,9 +18,17 @@
 
 package com.tictactoe.main;
 
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Scanner;
+import com.tictactoe.analyzer.Analyzer;
+import com.tictactoe.engine.Engine;
 import com.tictactoe.game.*;
-import com.tictactoe.player.Player;
+import com.tictactoe.perft.Perft;
+import com.tictactoe.search.MonteCarloSearch;
+import com.tictactoe.search.Search;
+import com.tictactoe.selfplay.SelfPlay;
+import com.tictactoe.server.GameServer;
 public class Main
 {
 	public static final String appName="KenTacToe";
@@ -28,16 +36,50 @@ public class Main
 	public static final String appAuthor="Kenshin Himura (Sudarsan Balaji)";
 	/**
 	 * Main function
+	 * With <code>-analyze</code> as the first argument, the positions given are
+	 * analyzed in batch (see <code>Analyzer.main()</code>) instead of playing.
+	 * With <code>-engine</code>, the AI is driven by a text protocol over the
+	 * standard input and output (see <code>Engine</code>), and with
+	 * <code>-server</code>, games are served over HTTP (see <code>GameServer</code>).
+	 * With <code>-selfplay</code>, the AI plays itself and the games are
+	 * written to a corpus (see <code>SelfPlay.main()</code>), and with
+	 * <code>-perft</code>, the game tree is counted (see <code>Perft.main()</code>).
 	 */
-	public static void main(String[] args)
+	public static void main(String[] args) throws IOException
 	{
+		if((args.length>0)&&args[0].equals("-analyze"))
+		{
+			Analyzer.main(Arrays.copyOfRange(args,1,args.length));
+			return;
+		}
+		if((args.length>0)&&args[0].equals("-engine"))
+		{
+			Engine.main(Arrays.copyOfRange(args,1,args.length));
+			return;
+		}
+		if((args.length>0)&&args[0].equals("-server"))
+		{
+			GameServer.main(Arrays.copyOfRange(args,1,args.length));
+			return;
+		}
+		if((args.length>0)&&args[0].equals("-selfplay"))
+		{
+			SelfPlay.main(Arrays.copyOfRange(args,1,args.length));
+			return;
+		}
+		if((args.length>0)&&args[0].equals("-perft"))
+		{
+			Perft.main(Arrays.copyOfRange(args,1,args.length));
+			return;
+		}
 		Scanner inputStream=new Scanner(System.in);
 		byte aiOrUser=0, turnNumber=0, playAgain=1;
 		Game ticTacToe;
 		String userName, secondUserName="NoName";
+		//measure the speed of this machine once, before the first game
+		Search.calibrate();
 		while(playAgain!=0)
 		{
-			Player.playerCount=0;
 			System.out.println(appName+" "+appVersion);
 			System.out.println("by "+appAuthor);
 			System.out.println("Play against AI or human? Enter 0 for AI:");
@@ -71,6 +113,11 @@ public class Main
 						"take default search depth as moves available):");
 				byte searchDepth=inputStream.nextByte();
 				ticTacToe=new Game(gridSize, userName, turnNumber, searchDepth);
+				//in the time it is given, alpha-beta searches five or six plies of the
+				//64 and more moves of the larger tables; the Monte Carlo AI plays its
+				//games out to the end instead
+				if((searchDepth<=0)&&(gridSize>7))
+					ticTacToe.setAI(Game.MONTE_CARLO_AI,MonteCarloSearch.DEFAULT_TIME);
 			}
 			else
 				ticTacToe=new Game(gridSize,userName,secondUserName);
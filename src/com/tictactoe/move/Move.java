@@ -18,66 +18,111 @@
 
 package com.tictactoe.move;
 
-import com.tictactoe.table.Table;
-
 /**
  * The <code>Move</code> class is used to represent a move. A <code>Game</code> will
  * have some players and many moves. To represent this is a programming fashion,
  * this class has been defined. Several move objects can be placed on a move stack
  * of the Game (later, not as of now). Also, a Search must generate a set of possible
  * legal moves and then process them to find a best move.
- * It contains two tables, a source and a destination.
+ * A move is simply the index of the cell to be signed and the sign of the player
+ * signing it. Both fit into a <code>short</code>, which is how the search keeps
+ * its move lists (see <code>encode()</code>); objects of this class are only a thin
+ * wrapper used where a move is passed around, as in <code>Game</code>.
  * @author Kenshin Himura
  *
  */
 public class Move
 {
 	/**
-	 * Holds the current table. Source of the move.
+	 * Holds the index of the cell signed by the move.
+	 * Set to -1 if the move does not sign any cell.
 	 */
-	private Table tableCurrent;
+	private byte index;
 	/**
-	 * Holds the table to be obtained after the move has been made.
+	 * Holds the sign of the player making the move, 'X' or 'O'.
 	 */
-	private Table tableNext;
+	private char sign;
 	/**
 	 * Default constructor of the class <code>Move</code>.
-	 * Calls the default constructors of the two <code>Table</code> objects.
+	 * Creates a move which does not sign any cell.
 	 */
 	public Move()
 	{
-		tableCurrent=new Table();
-		tableNext=new Table();
+		index=-1;
+		sign='-';
+	}
+	/**
+	 * Constructor of the <code>Move</code> class used for generating moves.
+	 * @param index Index of the cell to be signed.
+	 * @param sign Sign of the player making the move, 'X' or 'O'.
+	 */
+	public Move(byte index,char sign)
+	{
+		this.index=index;
+		this.sign=sign;
 	}
 	/**
-	 * Constructor of the <code>Move</code> class used for genrating moves.
-	 * Takes a source table and a destination table as parameters.
-	 * @param tableFrom The current state of the table (before the move has been made).
-	 * @param tableTo The next state of the table (after the move has been made).
+	 * Constructor of the <code>Move</code> class used to unpack a move
+	 * from a move list.
+	 * @param move The move, as packed by <code>encode()</code>.
 	 */
-	public Move(Table tableFrom,Table tableTo)
+	public Move(short move)
 	{
-		tableCurrent=tableFrom;
-		tableNext=tableTo;
+		this(indexOf(move),signOf(move));
 	}
 	/**
-	 * Generic getter method of the tableCurrent variable. It, being private,
+	 * Generic getter method of the index variable. It, being private,
 	 * has to be accessed only by public getter and setter methods.
-	 * Is generally used in place of unMakeMove() function here.
-	 * @return The current state of the table (before the move has been made).
+	 * @return The index of the cell signed by the move.
 	 */
-	public Table getTableCurrent()
+	public byte getIndex()
 	{
-		return tableCurrent;
+		return index;
 	}
 	/**
-	 * Generic getter method of the tableNext variable. It, being private,
+	 * Generic getter method of the sign variable. It, being private,
 	 * has to be accessed only by public getter and setter methods.
-	 * Is generally used in place of makeMove() function here.
-	 * @return The next state of the table (after the move has been made).
+	 * @return The sign of the player making the move.
+	 */
+	public char getSign()
+	{
+		return sign;
+	}
+	/**
+	 * This method packs the move into a <code>short</code>.
+	 * @return The packed move.
+	 */
+	public short encode()
+	{
+		return encode(index,sign);
+	}
+	/**
+	 * This method packs a move into a <code>short</code>, the cell index
+	 * in the upper bits and the sign in the lowest bit (0 for X, 1 for O).
+	 * @param index Index of the cell to be signed.
+	 * @param sign Sign of the player making the move, 'X' or 'O'.
+	 * @return The packed move.
+	 */
+	public static short encode(byte index,char sign)
+	{
+		return (short)((index<<1)|((sign=='O')?1:0));
+	}
+	/**
+	 * This method unpacks the cell index of a packed move.
+	 * @param move The move, as packed by <code>encode()</code>.
+	 * @return The index of the cell signed by the move.
+	 */
+	public static byte indexOf(short move)
+	{
+		return (byte)(move>>1);
+	}
+	/**
+	 * This method unpacks the sign of a packed move.
+	 * @param move The move, as packed by <code>encode()</code>.
+	 * @return The sign of the player making the move, 'X' or 'O'.
 	 */
-	public Table getTableNext()
+	public static char signOf(short move)
 	{
-		return tableNext;
+		return ((move&1)==0)?'X':'O';
 	}
 }
\ No newline at end of file
@@ -25,63 +25,75 @@ package com.tictactoe.player;
  * implementation has very few important attributes to make use of.
  * Name and Type are a must. Sign of the player is also required
  * (players sign in the boxes in Tic Tac Toe).
+ * A player never changes once created, and its sign is given by the game
+ * creating it (it used to be worked out from a static count of the players
+ * created, which was wrong as soon as two games were set up at once), so
+ * players can be shared between threads freely.
  * @author Kenshin Himura
  *
  */
-public class Player
+public final class Player
 {
+	/**
+	 * Type of a player who plays by entering moves.
+	 */
+	public static final String USER="User";
+	/**
+	 * Type of a player whose moves are searched for.
+	 */
+	public static final String AI="AI";
 	/**
 	 * Holds the player's name. Used to provide a minor personalized experience
 	 * and may be used to display/update the High Scores table (just an idea!)
 	 */
-	private String playerName;
+	private final String playerName;
 	/**
 	 * Holds the player's type. A String which is initialized to <code>"User"</code>
 	 * or <code>"AI"</code> during construction. Just for the Game to know if it has
 	 * to ask for input or it should ask for the AI to calculate.
 	 */
-	private String playerType;
+	private final String playerType;
 	/**
 	 * Holds the sign of the player. Whether he signs as X or O. Used to
 	 * update tables.
 	 */
-	private char playerSign;
+	private final char playerSign;
 	/**
-	 * Keeps count of the number of players to properly set the name and sign of 
-	 * both the user and the AI player.
+	 * Constructor of <code>Player</code> class used for instantiating AI
+	 * players. Generates default names automatically: "DefaultPlayer0" for
+	 * the AI playing X and "DefaultPlayer1" for the AI playing O.
+	 * @param playerSign Sign of the player, 'X' or 'O'.
 	 */
-	public static byte playerCount=0;
+	public Player(char playerSign)
+	{
+		this("DefaultPlayer"+((playerSign=='X')?0:1),AI,playerSign);
+	}
 	/**
-	 * Default constructor of <code>Player</code> class. Used for instantiating
-	 * AI players. Reduced complexity as of now, as it generates default names
-	 * automatically. Also sets the AI player's sign to 'X' if first player of
-	 * the game or 'O' if it is the second player.
+	 * Constructor of the <code>Player</code> class used to instantiate a Player
+	 * of type "User" with a specified name and sign.
+	 * @param playerName Name of the player to be created.
+	 * @param playerSign Sign of the player, 'X' or 'O'.
 	 */
-	public Player()
+	public Player(String playerName, char playerSign)
 	{
-		setPlayerName("DefaultPlayer"+playerCount);
-		setPlayerType("AI");
-		if((playerCount%2)==0)
-			setPlayerSign('X');
-		else
-			setPlayerSign('O');
-		playerCount++;
+		this(playerName,USER,playerSign);
 	}
 	/**
 	 * Constructor of the <code>Player</code> class used to instantiate a Player
-	 * of type "User" with a specified name. Also sets the player's sign.
-	 * Currently only one human player per game can be created.
+	 * with everything specified, eg, to tell a <code>Search</code> which side
+	 * to search for.
 	 * @param playerName Name of the player to be created.
+	 * @param playerType Type of the player, <code>"User"</code> or <code>"AI"</code>.
+	 * @param playerSign Sign of the player, 'X' or 'O'.
+	 * @throws IllegalArgumentException If the sign is not 'X' or 'O'
 	 */
-	public Player(String playerName)
+	public Player(String playerName, String playerType, char playerSign)
 	{
-		setPlayerName(playerName);
-		setPlayerType("User");
-		if((playerCount%2)==0)
-			setPlayerSign('X');
-		else
-			setPlayerSign('O');
-		playerCount++;
+		if((playerSign!='X')&&(playerSign!='O'))
+			throw new IllegalArgumentException("A player signs as X or O, not "+playerSign);
+		this.playerName=playerName;
+		this.playerType=playerType;
+		this.playerSign=playerSign;
 	}
 	/**
 	 * Generic getter method to obtain the player's name. Being a private variable,it has
@@ -92,16 +104,6 @@ public class Player
 	{
 		return playerName;
 	}
-	/**
-	 * Generic setter method used to set the player name. Used primarily (only) during
-	 * construction in this program, although it can be used elsewhere and is defined
-	 * merely as good programming practice.
-	 * @param playerName Name of the Player
-	 */
-	public void setPlayerName(String playerName)
-	{
-		this.playerName = playerName;
-	}
 	/**
 	 * Generic getter method to obtain the player's type. Being a private variable,it has
 	 * to be accessed by a public getter method.
@@ -112,14 +114,12 @@ public class Player
 		return playerType;
 	}
 	/**
-	 * Generic setter method used to set the player type. Used primarily (only) during
-	 * construction in this program, although it can be used elsewhere and is defined
-	 * merely as good programming practice.
-	 * @param playerType Type of the Player
+	 * This method is used to know if the player's moves are searched for.
+	 * @return <code>true</code> if the player is of type <code>"AI"</code>
 	 */
-	public void setPlayerType(String playerType)
+	public boolean isAI()
 	{
-		this.playerType = playerType;
+		return AI.equals(playerType);
 	}
 	/**
 	 * Generic getter method to obtain the player's sign. Being a private variable,it has
@@ -130,14 +130,4 @@ public class Player
 	{
 		return playerSign;
 	}
-	/**
-	 * Generic setter method used to set the player sign. Used primarily (only) during
-	 * construction in this program, although it can be used elsewhere and is defined
-	 * merely as good programming practice.
-	 * @param playerSign Sign of the Player
-	 */
-	public void setPlayerSign(char playerSign)
-	{
-		this.playerSign = playerSign;
-	}
 }
@@ -0,0 +1,55 @@
+/*
+ * This file is part of KenTacToe, (c) Kenshin Himura, 2013.
+ *
+ * KenTacToe is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KenTacToe is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KenTacToe.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.tictactoe.search;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The <code>EvaluationEvent</code> is the Flight Recorder event of one call of
+ * <code>Table.getScore()</code> at a leaf of a search. Only one leaf out of
+ * every <code>Search.EVALUATION_SAMPLE</code> nodes is recorded, as recording
+ * them all would slow the search down many times. It is disabled unless
+ * enabled in the recording settings.
+ * @author Kenshin Himura
+ *
+ */
+@Name("com.tictactoe.Evaluation")
+@Label("Evaluation")
+@Category({"KenTacToe","Search"})
+@Description("A sampled evaluation of a leaf of a search")
+@StackTrace(false)
+@Enabled(false)
+public final class EvaluationEvent extends jdk.jfr.Event
+{
+	/**
+	 * The table evaluated, as written by <code>Table.toString()</code>.
+	 */
+	@Label("Position")
+	String position;
+	/**
+	 * Score of the table, from X's perspective.
+	 */
+	@Label("Score")
+	long score;
+}
@@ -0,0 +1,66 @@
+/*
+ * This file is part of KenTacToe, (c) Kenshin Himura, 2013.
+ *
+ * KenTacToe is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KenTacToe is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KenTacToe.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.tictactoe.search;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The <code>IterationEvent</code> is the Flight Recorder event of one
+ * iteration of a search: the root moves searched to one depth. A search
+ * without a time limit has a single iteration, to its search depth.
+ * @author Kenshin Himura
+ *
+ */
+@Name("com.tictactoe.Iteration")
+@Label("Search Iteration")
+@Category({"KenTacToe","Search"})
+@Description("The root moves of a search, searched to one depth")
+@StackTrace(false)
+public final class IterationEvent extends jdk.jfr.Event
+{
+	/**
+	 * Depth of the iteration.
+	 */
+	@Label("Depth")
+	byte depth;
+	/**
+	 * Nodes visited by the iteration, by all threads.
+	 */
+	@Label("Nodes")
+	long nodes;
+	/**
+	 * If the iteration was completed, rather than stopped.
+	 */
+	@Label("Completed")
+	boolean completed;
+	/**
+	 * Index of the cell of the best move of the iteration.
+	 */
+	@Label("Best Move")
+	byte bestMove;
+	/**
+	 * Score of the best move of the iteration, from the perspective of the side to move.
+	 */
+	@Label("Score")
+	long score;
+}
@@ -0,0 +1,616 @@
+/*
+ * This file is part of KenTacToe, (c) Kenshin Himura, 2013.
+ *
+ * KenTacToe is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KenTacToe is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KenTacToe.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.tictactoe.search;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.tictactoe.move.Move;
+import com.tictactoe.player.Player;
+import com.tictactoe.table.Table;
+
+/**
+ * The <code>MonteCarloSearch</code> class is the other AI of the game, for the
+ * large tables, of 64 and more moves, on which <code>Search</code> searches
+ * only five or six plies in the time it is given. Rather than scoring
+ * positions, it plays many games out to their end at random from the current
+ * state, and grows a tree of the moves whose games went best
+ * (Monte Carlo Tree Search, with UCT to choose between trying the moves which
+ * did best so far and the moves tried the least). It plays the move tried the
+ * most once its time is up.
+ * The tree is kept in a pool of nodes made of plain arrays (the first child,
+ * number of children, move, visits and rewards of every node), allocated once
+ * and reused by every search, and the games are played on a
+ * <code>PlayoutBoard</code>, so that nothing is allocated while searching. The
+ * children of a node are its empty cells in random order, and are all added at
+ * once, the first time the node is reached again; once the pool is full the
+ * tree stops growing, and the search goes on with the tree it has.
+ * With more than one thread, every thread plays its own games down the same
+ * tree, without any locking. Visits and rewards are counted with atomic adds,
+ * and a node is expanded by the one thread which claims it with a
+ * compare-and-set (the others play their game out from it meanwhile). A thread
+ * going down a node counts its visit there at once, and its reward only when
+ * its game is over: until then the game counts as lost (a virtual loss), so
+ * that the other threads go down other branches rather than all following the
+ * same one.
+ * @author Kenshin Himura
+ *
+ */
+public class MonteCarloSearch
+{
+	/**
+	 * Default number of nodes of the pool.
+	 */
+	public static final int DEFAULT_NODES=1<<20;
+	/**
+	 * Default time a search takes, in milliseconds.
+	 */
+	public static final float DEFAULT_TIME=1000;
+	/**
+	 * Weight of the exploration term of UCT (the square root of 2, for rewards
+	 * from 0 to 1).
+	 */
+	private static final double EXPLORATION=Math.sqrt(2);
+	/**
+	 * Number of games played between two looks at the clock. A power of two.
+	 */
+	private static final int CLOCK_INTERVAL=64;
+	/**
+	 * Number of children of a node being expanded by a thread.
+	 */
+	private static final int EXPANDING=-1;
+	/**
+	 * The current state of the game. Not changed by the search.
+	 */
+	private Table currentState;
+	/**
+	 * The player for whom the search is.
+	 */
+	private Player currentPlayer;
+	/**
+	 * Time a search takes in milliseconds, if there is no game clock.
+	 */
+	private float time=DEFAULT_TIME;
+	/**
+	 * Remaining time on the game clock of the player to move, in milliseconds,
+	 * or -1 if there is no clock.
+	 */
+	private long clockTime=-1;
+	/**
+	 * Time added to the game clock of the player after every move, in milliseconds.
+	 */
+	private long clockIncrement;
+	/**
+	 * Number of games after which a search stops even if it has time left,
+	 * 0 for no limit.
+	 */
+	private long maxPlayouts;
+	/**
+	 * Number of nodes of the pool.
+	 */
+	private int capacity=DEFAULT_NODES;
+	/**
+	 * Number of threads playing games.
+	 */
+	private int threads=1;
+	/**
+	 * Index of the first child of every node.
+	 */
+	private int firstChild[];
+	/**
+	 * Number of children of every node, 0 if it has not been expanded and
+	 * <code>EXPANDING</code> while it is being expanded. Set once the children
+	 * are, so a thread which sees it set sees the children too.
+	 */
+	private AtomicIntegerArray childCount;
+	/**
+	 * Index of the cell of the move leading to every node.
+	 */
+	private byte move[];
+	/**
+	 * Number of games played through every node. A game is counted as a thread
+	 * goes down the node, before its reward is known; that visit without a
+	 * reward is the virtual loss.
+	 */
+	private AtomicIntegerArray visits;
+	/**
+	 * Rewards of the games played through every node, for the player who
+	 * made its move, in half points: 2 per win and 1 per draw.
+	 */
+	private AtomicIntegerArray rewards;
+	/**
+	 * Number of nodes of the pool in use.
+	 */
+	private final AtomicInteger nodeCount=new AtomicInteger();
+	/**
+	 * The position of the root, as a playout board. Only read while searching.
+	 */
+	private PlayoutBoard rootBoard;
+	/**
+	 * Side to move at the root, <code>PlayoutBoard.X</code> or <code>O</code>.
+	 */
+	private int rootPlayer;
+	/**
+	 * Time at which the current search stops, from <code>System.nanoTime()</code>.
+	 */
+	private long deadline;
+	/**
+	 * The workers playing the games, one per thread. The first one is run by
+	 * the caller's thread.
+	 */
+	private Worker workers[];
+	/**
+	 * The pool running the workers other than the first, created on the
+	 * first search with more than one thread.
+	 */
+	private ForkJoinPool pool;
+	/**
+	 * Number of games played by the current search, by all its threads.
+	 */
+	private final AtomicLong playoutCount=new AtomicLong();
+	/**
+	 * Number of games played by the last search.
+	 */
+	private long playouts;
+	/**
+	 * The best move found by the last search.
+	 */
+	private Move bestMove;
+	/**
+	 * Share of the games won (with draws as half) by the best move of the last search.
+	 */
+	private double bestWinRate;
+	/**
+	 * Default constructor of <code>MonteCarloSearch</code>.
+	 */
+	public MonteCarloSearch()
+	{
+
+	}
+	/**
+	 * Constructor of <code>MonteCarloSearch</code>, with the position to be searched.
+	 * @param currentState Current State of the Game
+	 * @param currentPlayer Current Player of the Game
+	 */
+	public MonteCarloSearch(Table currentState, Player currentPlayer)
+	{
+		setCurrentState(currentState);
+		setCurrentPlayer(currentPlayer);
+	}
+	/**
+	 * This method searches the current state for the current player, for the
+	 * time given (or a slice of the game clock), and gives the move tried in
+	 * the most games. A move which wins at once is played without a search.
+	 * @return Best Move found, or <code>null</code> if the game is over
+	 */
+	public Move getBestMove()
+	{
+		char sign=currentPlayer.getPlayerSign();
+		rootPlayer=(sign=='X')?PlayoutBoard.X:PlayoutBoard.O;
+		playouts=0;
+		bestMove=null;
+		if((currentState.isComplete()!=-1)||(currentState.getNoOfDs()==0))
+			return null;
+		prepare();
+		//a move which wins at once needs no search
+		PlayoutBoard board=workers[0].board;
+		for(int i=0;i<rootBoard.getNoOfEmpty();i++)
+		{
+			board.copy(rootBoard);
+			if(board.play(rootBoard.getEmpty(i),rootPlayer))
+			{
+				bestMove=new Move(rootBoard.getEmpty(i),sign);
+				bestWinRate=1;
+				return bestMove;
+			}
+		}
+		long timeSlice=getTimeSlice();
+		//an infinite time must not overflow
+		deadline=(timeSlice>=Long.MAX_VALUE/2000000L)?Long.MAX_VALUE:System.nanoTime()+timeSlice*1000000L;
+		playoutCount.set(0);
+		ForkJoinTask<?> tasks[]=new ForkJoinTask<?>[workers.length];
+		for(int i=1;i<workers.length;i++)
+			tasks[i]=pool.submit(workers[i]);
+		workers[0].run();
+		for(int i=1;i<workers.length;i++)
+			tasks[i].join();
+		playouts=playoutCount.get();
+		int first=firstChild[0];
+		int best=first;
+		for(int child=first;child<first+childCount.get(0);child++)
+			if(visits.get(child)>visits.get(best))
+				best=child;
+		bestMove=new Move(move[best],sign);
+		bestWinRate=(visits.get(best)==0)?0:rewards.get(best)/(2.0*visits.get(best));
+		return bestMove;
+	}
+	/**
+	 * This method makes the pool, the boards and the workers ready for a
+	 * search, allocating them if this is the first search (or the size of the
+	 * table, the pool or the number of threads has changed).
+	 */
+	private void prepare()
+	{
+		//the root and its children at least
+		int nodes=Math.max(capacity,currentState.getSizeOfTable()+1);
+		if((firstChild==null)||(firstChild.length!=nodes))
+		{
+			firstChild=new int[nodes];
+			childCount=new AtomicIntegerArray(nodes);
+			move=new byte[nodes];
+			visits=new AtomicIntegerArray(nodes);
+			rewards=new AtomicIntegerArray(nodes);
+		}
+		if((rootBoard==null)||(workers.length!=threads)||(workers[0].path.length!=currentState.getSizeOfTable()+1))
+		{
+			rootBoard=new PlayoutBoard(currentState);
+			workers=new Worker[threads];
+			for(int i=0;i<threads;i++)
+				workers[i]=new Worker(currentState,System.nanoTime()+i*0x9E3779B97F4A7C15L);
+		}
+		if((threads>1)&&((pool==null)||(pool.getParallelism()!=threads-1)))
+		{
+			if(pool!=null)
+				pool.shutdown();
+			pool=new ForkJoinPool(threads-1);
+		}
+		rootBoard.set(currentState);
+		nodeCount.set(1);
+		childCount.set(0,0);
+		visits.set(0,0);
+		rewards.set(0,0);
+		move[0]=-1;
+	}
+	/**
+	 * This method adds the children of a node, one for every empty cell, in
+	 * random order, unless another thread is already adding them or the pool
+	 * has no room left for them.
+	 * @param node The node, whose position is on the board
+	 * @param board The board of the thread
+	 * @param random The random numbers of the thread
+	 * @return <code>true</code> if the children were added, <code>false</code> otherwise
+	 */
+	private boolean expand(int node, PlayoutBoard board, PlayoutBoard.Random random)
+	{
+		int count=board.getNoOfEmpty();
+		if((nodeCount.get()+count>firstChild.length)||!childCount.compareAndSet(node,0,EXPANDING))
+			return false;
+		int first;
+		do
+		{
+			first=nodeCount.get();
+			if(first+count>firstChild.length)
+			{
+				childCount.set(node,0);
+				return false;
+			}
+		}
+		while(!nodeCount.compareAndSet(first,first+count));
+		for(int i=0;i<count;i++)
+		{
+			int j=random.nextInt(i+1);
+			move[first+i]=move[first+j];
+			move[first+j]=board.getEmpty(i);
+		}
+		for(int child=first;child<first+count;child++)
+		{
+			childCount.set(child,0);
+			visits.set(child,0);
+			rewards.set(child,0);
+		}
+		firstChild[node]=first;
+		childCount.set(node,count);
+		return true;
+	}
+	/**
+	 * This method chooses the child of a node to go down to by UCT: a child not
+	 * tried yet if there is one, else the one with the best sum of its share
+	 * of games won and of an exploration term, which grows for the children
+	 * tried less than their siblings.
+	 * @param node The node
+	 * @param count Number of children of the node
+	 * @return Index of the child chosen
+	 */
+	private int select(int node, int count)
+	{
+		int first=firstChild[node];
+		int last=first+count;
+		double logVisits=Math.log(visits.get(node));
+		int best=first;
+		double bestValue=Double.NEGATIVE_INFINITY;
+		for(int child=first;child<last;child++)
+		{
+			int n=visits.get(child);
+			if(n==0)
+				return child;
+			double value=rewards.get(child)/(2.0*n)+EXPLORATION*Math.sqrt(logVisits/n);
+			if(value>bestValue)
+			{
+				bestValue=value;
+				best=child;
+			}
+		}
+		return best;
+	}
+	/**
+	 * The <code>Worker</code> plays games for one thread of the search, on
+	 * its own board and with its own random numbers, until the search is out
+	 * of time or has played enough games.
+	 * @author Kenshin Himura
+	 *
+	 */
+	private class Worker implements Runnable
+	{
+		/**
+		 * The board the games are played on, copied from <code>rootBoard</code>.
+		 */
+		private final PlayoutBoard board;
+		/**
+		 * Nodes from the root to the leaf of the current game.
+		 */
+		private final int path[];
+		/**
+		 * Source of the random moves.
+		 */
+		private final PlayoutBoard.Random random;
+		/**
+		 * Constructor of <code>Worker</code>.
+		 * @param table A table of the size searched, for the layout of the board
+		 * @param seed Seed of the random moves
+		 */
+		Worker(Table table, long seed)
+		{
+			board=new PlayoutBoard(table);
+			path=new int[table.getSizeOfTable()+1];
+			random=new PlayoutBoard.Random(seed);
+		}
+		@Override
+		public void run()
+		{
+			long played;
+			do
+			{
+				for(int i=0;i<CLOCK_INTERVAL;i++)
+					playOnce();
+				played=playoutCount.addAndGet(CLOCK_INTERVAL);
+			}
+			while((System.nanoTime()<deadline)&&((maxPlayouts<=0)||(played<maxPlayouts)));
+		}
+		/**
+		 * This method plays one game: down the tree choosing moves by UCT,
+		 * adding the children of the node it stops at, then at random to the
+		 * end of the game, and gives the result to every node of the tree it
+		 * went through.
+		 */
+		private void playOnce()
+		{
+			board.copy(rootBoard);
+			int node=0;
+			int depth=0;
+			int player=rootPlayer;
+			int winner=-2;
+			path[0]=0;
+			visits.incrementAndGet(0);
+			while(true)
+			{
+				int count=childCount.get(node);
+				if(count<=0)
+				{
+					if((count==EXPANDING)||!expand(node,board,random))
+						break;
+					count=childCount.get(node);
+				}
+				int child=select(node,count);
+				path[++depth]=child;
+				int tried=visits.getAndIncrement(child);
+				if(board.play(move[child],player))
+				{
+					winner=player;
+					break;
+				}
+				if(board.getNoOfEmpty()==0)
+				{
+					winner=-1;
+					break;
+				}
+				player^=1;
+				node=child;
+				if(tried==0)
+					break;
+			}
+			if(winner==-2)
+				winner=board.playOut(player,random);
+			for(int i=depth;i>=0;i--)
+			{
+				int n=path[i];
+				if(winner==-1)
+					rewards.incrementAndGet(n);
+				//the move of path[i] was made by the root player if i is odd
+				else if((i>0)&&(winner==(rootPlayer^((i-1)&1))))
+					rewards.addAndGet(n,2);
+			}
+		}
+	}
+	/**
+	 * This method is used to work out how long the current search may take:
+	 * the time set, or an even share of the game clock over the moves the
+	 * player has left, plus the increment, but never more than nine tenths of
+	 * the clock (as <code>Search.getTimeSlice()</code> does).
+	 * @return The time of the search in milliseconds (at least 1)
+	 */
+	public long getTimeSlice()
+	{
+		long returnValue=(long)time;
+		if(clockTime>=0)
+		{
+			int movesLeft=Math.max(1,(currentState.getNoOfDs()+1)/2);
+			long slice=(clockTime/movesLeft)+clockIncrement;
+			returnValue=Math.min(slice,(clockTime*9)/10);
+		}
+		return Math.max(1,returnValue);
+	}
+	/**
+	 * Generic setter method to set the current state of the search.
+	 * @param currentState Current State of the Game, not changed by the search
+	 */
+	public void setCurrentState(Table currentState)
+	{
+		this.currentState = currentState;
+	}
+	/**
+	 * Generic getter method to get the current state of the search.
+	 * @return Current State of the Game
+	 */
+	public Table getCurrentState()
+	{
+		return currentState;
+	}
+	/**
+	 * Generic setter method to set the current player of the search.
+	 * @param currentPlayer The player for whom the search is
+	 */
+	public void setCurrentPlayer(Player currentPlayer)
+	{
+		this.currentPlayer = currentPlayer;
+	}
+	/**
+	 * Generic getter method to get the current player of the search.
+	 * @return The player for whom the search is
+	 */
+	public Player getCurrentPlayer()
+	{
+		return currentPlayer;
+	}
+	/**
+	 * Generic setter method to set the time of a search.
+	 * @param time Time a search takes in milliseconds, if there is no game clock
+	 */
+	public void setTime(float time)
+	{
+		this.time = time;
+	}
+	/**
+	 * Generic getter method to get the time of a search.
+	 * @return Time a search takes in milliseconds, if there is no game clock
+	 */
+	public float getTime()
+	{
+		return time;
+	}
+	/**
+	 * This method is used to give the search a game clock instead of a fixed
+	 * time. The search then takes a slice of the remaining time.
+	 * @param clockTime Remaining time on the clock of the player to move in
+	 * milliseconds, -1 for no clock
+	 * @param clockIncrement Time added to the clock after every move in milliseconds
+	 */
+	public void setClock(long clockTime, long clockIncrement)
+	{
+		this.clockTime = clockTime;
+		this.clockIncrement = clockIncrement;
+	}
+	/**
+	 * Generic setter method to set the most games a search plays.
+	 * @param maxPlayouts Number of games after which a search stops even if it
+	 * has time left (rounded up to a multiple of 64), 0 for no limit
+	 */
+	public void setMaxPlayouts(long maxPlayouts)
+	{
+		this.maxPlayouts = maxPlayouts;
+	}
+	/**
+	 * Generic getter method to get the most games a search plays.
+	 * @return Number of games after which a search stops, 0 for no limit
+	 */
+	public long getMaxPlayouts()
+	{
+		return maxPlayouts;
+	}
+	/**
+	 * Generic setter method to set the number of nodes of the pool.
+	 * @param capacity Number of nodes the tree may grow to (never less than 1
+	 * more than the cells of the table)
+	 */
+	public void setCapacity(int capacity)
+	{
+		this.capacity = capacity;
+	}
+	/**
+	 * Generic getter method to get the number of nodes of the pool.
+	 * @return Number of nodes the tree may grow to
+	 */
+	public int getCapacity()
+	{
+		return capacity;
+	}
+	/**
+	 * Generic getter method to get the number of threads of the search.
+	 * @return Number of threads playing games
+	 */
+	public int getThreads()
+	{
+		return threads;
+	}
+	/**
+	 * Generic setter method to set the number of threads of the search.
+	 * All the threads play their games down the same tree.
+	 * @param threads Number of threads playing games, at least 1
+	 */
+	public void setThreads(int threads)
+	{
+		this.threads = Math.max(1,threads);
+	}
+	/**
+	 * This method stops the threads of the search, if it has any. The search
+	 * may still be used afterwards; the threads are then started again.
+	 */
+	public void shutdown()
+	{
+		if(pool!=null)
+			pool.shutdown();
+		pool=null;
+	}
+	/**
+	 * Generic getter method to get the number of games played by the last search.
+	 * @return Number of games played
+	 */
+	public long getPlayouts()
+	{
+		return playouts;
+	}
+	/**
+	 * Generic getter method to get the number of nodes of the tree of the last search.
+	 * @return Number of nodes of the tree
+	 */
+	public int getNodeCount()
+	{
+		return nodeCount.get();
+	}
+	/**
+	 * Generic getter method to get how well the best move of the last search did.
+	 * @return Share of its games won, with draws as half, from 0 to 1
+	 */
+	public double getBestWinRate()
+	{
+		return bestWinRate;
+	}
+}
@@ -0,0 +1,212 @@
+/*
+ * This file is part of KenTacToe, (c) Kenshin Himura, 2013.
+ *
+ * KenTacToe is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KenTacToe is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KenTacToe.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.tictactoe.search;
+
+import com.tictactoe.table.Table;
+
+/**
+ * The <code>PlayoutBoard</code> is the board Monte Carlo searches play their
+ * games on. It keeps only what a random game needs: how many cells of every
+ * line each side has signed, and the list of the empty cells, so that a move
+ * is a few array writes, telling at once whether it won, and a random move is
+ * picked without looking at the signed cells. A board is set from a table once,
+ * and copied into another board (of the same size) without allocating.
+ * @author Kenshin Himura
+ *
+ */
+class PlayoutBoard
+{
+	/**
+	 * Side to move is X.
+	 */
+	static final int X=0;
+	/**
+	 * Side to move is O.
+	 */
+	static final int O=1;
+	/**
+	 * Lines through every cell, numbered as by the table the board was made for.
+	 */
+	private final byte cellLines[][];
+	/**
+	 * Number of cells of every line.
+	 */
+	private final byte lineLengths[];
+	/**
+	 * Cells every line still misses to be complete, for X (first half) and
+	 * for O (second half); a side wins when one of its lines reaches 0.
+	 */
+	private final byte lineCounts[];
+	/**
+	 * The empty cells, in no particular order; the first <code>noOfEmpty</code> are valid.
+	 */
+	private final byte empties[];
+	/**
+	 * Position of every empty cell in <code>empties</code>.
+	 */
+	private final byte where[];
+	/**
+	 * Number of empty cells.
+	 */
+	private int noOfEmpty;
+	/**
+	 * Constructor of <code>PlayoutBoard</code>, used for an empty board laid
+	 * out like a table (its rows, columns and diagonals are those of the table).
+	 * @param table A table of the size of the board; its cells are not read
+	 */
+	PlayoutBoard(Table table)
+	{
+		int size=table.getSizeOfTable();
+		cellLines=new byte[size][];
+		for(byte cell=0;cell<size;cell++)
+			cellLines[cell]=table.getLinesOfCell(cell);
+		lineLengths=new byte[table.getNoOfLines()];
+		for(int line=0;line<lineLengths.length;line++)
+			lineLengths[line]=table.getLineLength(line);
+		lineCounts=new byte[2*lineLengths.length];
+		empties=new byte[size];
+		where=new byte[size];
+		clear();
+	}
+	/**
+	 * This method empties the board.
+	 */
+	void clear()
+	{
+		for(int i=0;i<lineCounts.length;i++)
+			lineCounts[i]=lineLengths[i%lineLengths.length];
+		noOfEmpty=empties.length;
+		for(int i=0;i<noOfEmpty;i++)
+			empties[i]=where[i]=(byte)i;
+	}
+	/**
+	 * This method sets the board to the position of a table of the same size.
+	 * @param table The table
+	 */
+	void set(Table table)
+	{
+		clear();
+		for(byte i=0;i<empties.length;i++)
+		{
+			char value=table.getValue(i);
+			if(value!='-')
+				play(i,(value=='X')?X:O);
+		}
+	}
+	/**
+	 * This method copies another board of the same size into this one.
+	 * @param board The board copied
+	 */
+	void copy(PlayoutBoard board)
+	{
+		System.arraycopy(board.lineCounts,0,lineCounts,0,lineCounts.length);
+		System.arraycopy(board.empties,0,empties,0,board.noOfEmpty);
+		System.arraycopy(board.where,0,where,0,where.length);
+		noOfEmpty=board.noOfEmpty;
+	}
+	/**
+	 * This method signs an empty cell.
+	 * @param cell Index of the cell
+	 * @param player <code>X</code> or <code>O</code>
+	 * @return <code>true</code> if the move completed a line of the player
+	 */
+	boolean play(byte cell, int player)
+	{
+		//the last empty cell takes the place of the one signed
+		byte last=empties[--noOfEmpty];
+		byte position=where[cell];
+		empties[position]=last;
+		where[last]=position;
+		boolean won=false;
+		int offset=(player==X)?0:lineLengths.length;
+		byte lines[]=cellLines[cell];
+		for(int i=0;i<lines.length;i++)
+			if(--lineCounts[offset+lines[i]]==0)
+				won=true;
+		return won;
+	}
+	/**
+	 * This method plays random moves, from the given side on, until a side
+	 * wins or no cell is left.
+	 * @param player Side to move, <code>X</code> or <code>O</code>
+	 * @param random Source of the random moves
+	 * @return The winner, <code>X</code> or <code>O</code>, or -1 for a draw
+	 */
+	int playOut(int player, Random random)
+	{
+		while(noOfEmpty>0)
+		{
+			if(play(empties[random.nextInt(noOfEmpty)],player))
+				return player;
+			player^=1;
+		}
+		return -1;
+	}
+	/**
+	 * Generic getter method to get the number of empty cells.
+	 * @return Number of empty cells
+	 */
+	int getNoOfEmpty()
+	{
+		return noOfEmpty;
+	}
+	/**
+	 * This method gives an empty cell.
+	 * @param i Number of the empty cell, from 0 to <code>getNoOfEmpty()</code>-1
+	 * @return Index of the cell
+	 */
+	byte getEmpty(int i)
+	{
+		return empties[i];
+	}
+	/**
+	 * The <code>Random</code> is a xorshift generator of random numbers, much
+	 * faster than <code>java.util.Random</code>, as it is neither shared nor
+	 * synchronized; every search has its own.
+	 * @author Kenshin Himura
+	 *
+	 */
+	static final class Random
+	{
+		/**
+		 * State of the generator, never 0.
+		 */
+		private long state;
+		/**
+		 * Constructor of <code>Random</code>.
+		 * @param seed The seed
+		 */
+		Random(long seed)
+		{
+			state=(seed==0)?0x9E3779B97F4A7C15L:seed;
+		}
+		/**
+		 * This method gives a random number from 0 (inclusive) to n (exclusive).
+		 * @param n The bound, positive and below 2^31
+		 * @return The number
+		 */
+		int nextInt(int n)
+		{
+			state^=state<<13;
+			state^=state>>>7;
+			state^=state<<17;
+			return (int)(((state>>>32)*n)>>>32);
+		}
+	}
+}
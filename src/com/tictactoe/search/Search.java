@@ -18,6 +18,14 @@
 
 package com.tictactoe.search;
 
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jdk.jfr.FlightRecorder;
+
 import com.tictactoe.move.*;
 import com.tictactoe.player.*;
 import com.tictactoe.table.*;
@@ -36,6 +44,65 @@ import com.tictactoe.table.*;
  */
 public class Search
 {
+	/**
+	 * Zobrist key of the side to move, XOR-ed into the hash of the table when
+	 * O is to move, so that the same table with different sides to move is
+	 * not mistaken for the same position.
+	 */
+	private static final long SIDE_KEY=0x5DEECE66DA3B1C2FL;
+	/**
+	 * Search type of the plain mini-max with alpha beta pruning, which has
+	 * separate branches for X and O and searches every move with the full window.
+	 */
+	public static final byte ALPHA_BETA=0;
+	/**
+	 * Search type of the Principal Variation Search (NegaScout), in negamax form,
+	 * which searches every move after the first with a null window and searches
+	 * again only the moves which turn out better.
+	 */
+	public static final byte PRINCIPAL_VARIATION=1;
+	/**
+	 * Parallel search type in which the root moves are shared out among the
+	 * threads (see <code>searchRootParallel()</code>).
+	 */
+	public static final byte ROOT_SPLITTING=0;
+	/**
+	 * Parallel search type in which helper threads search the whole tree as
+	 * well, and pass what they find on only through a shared transposition
+	 * table (see <code>startHelpers()</code>).
+	 */
+	public static final byte LAZY_SMP=1;
+	/**
+	 * Default time a search without a time limit should take, in milliseconds
+	 * (see <code>optimizeSearchDepth()</code>).
+	 */
+	public static final float DEFAULT_LATENCY_TARGET=1000;
+	/**
+	 * Number of rows and columns of the table searched by <code>calibrate()</code>.
+	 */
+	private static final byte CALIBRATION_SIDE=5;
+	/**
+	 * Time <code>calibrate()</code> searches for, in milliseconds.
+	 */
+	private static final long CALIBRATION_TIME=100;
+	/**
+	 * One leaf out of every so many nodes is recorded by an
+	 * <code>EvaluationEvent</code>, if those are enabled. A power of two.
+	 */
+	public static final int EVALUATION_SAMPLE=4096;
+	/**
+	 * Nodes this machine searches per second, as measured by <code>calibrate()</code>,
+	 * 0 before calibration.
+	 */
+	private static double nodesPerSecond;
+	/**
+	 * Exponent k of the model of the effective branching factor measured by
+	 * <code>calibrate()</code>: searching one ply deeper with e empty cells
+	 * left at that ply costs e^k times as many nodes. 1 would be mini-max
+	 * without any pruning; alpha-beta, move ordering and transpositions
+	 * bring it well below.
+	 */
+	private static double branchingExponent;
 	/**
 	 * Holds the current best move found in the search.
 	 */
@@ -43,11 +110,11 @@ public class Search
 	/**
 	 * Holds the infinity value for the corresponding table.
 	 */
-	private double infinity;
+	private long infinity;
 	/**
 	 * Used to hold the score of the best state found so far in the search.
 	 */
-	private double bestScore;
+	private long bestScore;
 	/**
 	 * The current best state of the search, may be updated as and when
 	 * search gets deeper or shallower, with respect to the best move
@@ -64,7 +131,7 @@ public class Search
 	 * Used as a current-score keeper. Was easier to have it global,
 	 * so made it as a data member of the search class.
 	 */
-	private double currentScore;
+	private long currentScore;
 	/**
 	 * Holds the current search-state of the table used in the search.
 	 * Keeps changing as the search progresses.
@@ -84,22 +151,183 @@ public class Search
 	 */
 	private byte maxMoves;
 	/**
-	 * The moveStack is an array of objects of type <code>Move</code>
+	 * The moveStack is an array of moves packed as by <code>Move.encode()</code>
 	 * and is produced by adding all legal moves on the current state
 	 * and pushing them to the moveStack. This is performed by the moveGen()
-	 * method.
+	 * method. Reused from one call to the next.
+	 */
+	private short moveStack[];
+	/**
+	 * Holds the legal moves (cell indices) of every level of the search,
+	 * indexed by the remaining depth. Allocated once per search and reused,
+	 * so that no memory is allocated while searching.
+	 */
+	private byte moveBuffer[][];
+	/**
+	 * Remembers the positions already searched. Created on the first search
+	 * if not set, and kept from one search to the next.
+	 */
+	private TranspositionTable transpositionTable;
+	/**
+	 * Copy of the transposition table entry last probed.
+	 */
+	private final long hashEntry[]=new long[2];
+	/**
+	 * History heuristic table, indexed by side (0 for X, 1 for O) and cell index.
+	 * Every move which causes a cut-off is rewarded with the square of the
+	 * remaining depth, so moves which were good elsewhere in the tree are
+	 * searched earlier. Kept (halved) from one search to the next.
+	 */
+	private int history[][];
+	/**
+	 * Killer moves, two per ply (distance from the root): the last two moves
+	 * which caused a cut-off at that ply, tried right after the hash move.
+	 */
+	private byte killers[][];
+	/**
+	 * Countermove table, indexed by side (0 for X, 1 for O) and the index of the
+	 * opponent's last move: the reply which last refuted that move.
+	 */
+	private byte counterMoves[][];
+	/**
+	 * Ordering scores of the moves of every level of the search, laid out
+	 * like <code>moveBuffer</code>.
+	 */
+	private int moveScores[][];
+	/**
+	 * Depth of the current iteration, used to work out the ply of a node from
+	 * its remaining depth.
+	 */
+	private byte rootDepth;
+	/**
+	 * The search algorithm used, <code>ALPHA_BETA</code> (default) or
+	 * <code>PRINCIPAL_VARIATION</code>. Both share move generation, move ordering,
+	 * evaluation and the transposition table.
+	 */
+	private byte searchType=ALPHA_BETA;
+	/**
+	 * Number of threads of the search. If more than one, the search is run
+	 * in parallel, as given by <code>parallelType</code>.
+	 */
+	private int threads=1;
+	/**
+	 * The way the search is run in parallel, <code>ROOT_SPLITTING</code> (default)
+	 * or <code>LAZY_SMP</code>.
+	 */
+	private byte parallelType=ROOT_SPLITTING;
+	/**
+	 * Number of threats of the longest sequence of threats looked for before
+	 * the search (see <code>ThreatSearch</code>), 0 not to look for any.
+	 */
+	private int maxThreats=ThreatSearch.DEFAULT_THREATS;
+	/**
+	 * Looks for wins by a sequence of threats before the search, created on
+	 * the first search looking for one.
+	 */
+	private ThreatSearch threatSearch;
+	/**
+	 * The pool of threads of the search, created on the first parallel search.
+	 */
+	private ForkJoinPool pool;
+	/**
+	 * Helper searches of a Lazy SMP search, one per thread but the caller's.
+	 * They are kept from one search to the next.
+	 */
+	private Search helpers[];
+	/**
+	 * The tasks running the helpers of the current Lazy SMP search.
+	 */
+	private HelperTask helperTasks[];
+	/**
+	 * Worker searches not searching a root move at the moment. Each has its own
+	 * copy of the table, move buffers, move ordering tables and transposition
+	 * table, and they are kept from one search to the next.
+	 */
+	private ConcurrentLinkedQueue<Search> idleWorkers;
+	/**
+	 * Number of searches started by <code>getBestMove()</code>, used to know if
+	 * a worker has been made ready for the current search.
+	 */
+	private int searchCount;
+	/**
+	 * The value of <code>searchCount</code> of the owner of this worker
+	 * when this worker was last made ready.
 	 */
-	private Move moveStack[];
+	private int preparedSearch=-1;
+	/**
+	 * Number of the helper, 1 and up, if this is a helper of a Lazy SMP search.
+	 */
+	private int helperNo;
 	/**
 	 * Holds the required search depth for the current instance of class
 	 * <code>Search</code>.
 	 */
 	private byte searchDepth;
 	/**
-	 * Unused as of now, but may be used to enforce a time constraint on
-	 * the search. Will most likely be specified in milliseconds.
+	 * Time a search without a time limit should take, in milliseconds. The
+	 * search depth is cut down to the deepest depth expected to be searched
+	 * within it. Zero or less means no limit.
+	 */
+	private float latencyTarget=DEFAULT_LATENCY_TARGET;
+	/**
+	 * Time limit of the search in milliseconds. If positive, the search deepens
+	 * iteratively (depth 0, 1, 2, ...) until the time runs out, instead of
+	 * searching once to a fixed depth.
 	 */
 	private float time;
+	/**
+	 * Remaining time on the game clock of the player to move, in milliseconds,
+	 * or -1 if there is no clock. If set, the time limit of the search is a
+	 * slice of it (see <code>getTimeSlice()</code>).
+	 */
+	private long clockTime=-1;
+	/**
+	 * Time added to the game clock of the player after every move, in milliseconds.
+	 */
+	private long clockIncrement;
+	/**
+	 * Number of nodes visited by the current (or last) search.
+	 */
+	private long nodes;
+	/**
+	 * Statistics of the current (or last) search. Workers and helpers count
+	 * into their own, which are added to their owner's.
+	 */
+	private final SearchStats stats=new SearchStats();
+	/**
+	 * The deepest depth searched completely by the current (or last) search,
+	 * -1 before the first iteration has completed.
+	 */
+	private byte completedDepth;
+	/**
+	 * Time (as of <code>System.nanoTime()</code>) at which the current search
+	 * must stop. Far in the future if the search is not timed.
+	 */
+	private long deadline;
+	/**
+	 * Set when the current iteration of the search ran out of time. The results
+	 * of such an iteration are thrown away.
+	 */
+	private volatile boolean stopped;
+	/**
+	 * Set by <code>stop()</code>, to stop the current search as soon as it has
+	 * completed its first iteration.
+	 */
+	private volatile boolean stopRequested;
+	/**
+	 * The search this one is a worker of, or this search itself. Workers
+	 * stop when their owner is asked to.
+	 */
+	private Search owner=this;
+	/**
+	 * Best move (packed) of the last iteration searched by <code>searchRoot()</code>.
+	 */
+	private short iterationBestMove;
+	/**
+	 * Best score of the last iteration searched by <code>searchRoot()</code>,
+	 * from the perspective of the player to move.
+	 */
+	private long iterationBestScore;
 	/**
 	 * Default constructor of <code>Search</code> class. No use in default
 	 * construction of a search object, so an empty constructor is made, to enable
@@ -145,46 +373,374 @@ public class Search
 			setSearchDepth((byte)(currentState.getNoOfDs()-1));
 	}
 	/**
-	 * Mini-max with alpha beta pruning to determine best score and move
-	 * @param nodeTable Current node of search tree
+	 * Mini-max with alpha beta pruning to determine best score and move.
+	 * Moves are made and un-made in place on the currentSearchState, so the
+	 * table is the same on return as it was on entry.
 	 * @param depth Depth of search
 	 * @param alpha Initial alpha cut-off value
 	 * @param beta Initial beta cut-off value
-	 * @param current Current player (for sign change and move generation)
-	 * @return The best score in negaMax fashion
+	 * @param current Sign of the player who made the last move
+	 * @param lastMove Index of the cell of the last move
+	 * @return The best score, from X's perspective
 	 */
-	private double alphaBeta(Table nodeTable, byte depth, double alpha, double beta, Player current)
+	private long alphaBeta(byte depth, long alpha, long beta, char current, byte lastMove)
 	{
-		Table node=nodeTable.clone();
+		Table node=currentSearchState;
+		if(((++nodes&1023)==0)&&(completedDepth>=0)&&(owner.stopRequested||(System.nanoTime()>deadline)))
+			stopped=true;
 		if((depth==0)||(node.isComplete()!=-1))
-			return node.getScore();
-		Player tempPlayer=new Player();
-		if(current.getPlayerSign()=='X')
-			tempPlayer.setPlayerSign('O');
-		else
-			tempPlayer.setPlayerSign('X');
-		Search tempSearch=new Search(node, tempPlayer);
-		tempSearch.moveGen();
-		if(tempPlayer.getPlayerSign()=='X')
 		{
-			for(byte i=0;i<tempSearch.getMaxMoves();i++)
+			stats.leaves++;
+			return evaluate(node);
+		}
+		char next=(current=='X')?'O':'X';
+		//symmetric positions share one entry, kept for the canonical table
+		int transform=node.getCanonicalTransform();
+		long key=node.getHash(transform)^((next=='O')?SIDE_KEY:0);
+		byte hashMove=-1;
+		stats.probes++;
+		if(transpositionTable.probe(key,hashEntry))
+		{
+			stats.hits++;
+			hashMove=node.inverseTransformIndex(transform,TranspositionTable.getBestMove(hashEntry));
+			if(TranspositionTable.getDepth(hashEntry)>=depth)
+			{
+				long hashScore=TranspositionTable.getScore(hashEntry);
+				byte bound=TranspositionTable.getBound(hashEntry);
+				if(bound==TranspositionTable.EXACT)
+					return hashScore;
+				if(bound==TranspositionTable.LOWER_BOUND)
+					alpha=Math.max(alpha,hashScore);
+				else
+					beta=Math.min(beta,hashScore);
+				if(alpha>=beta)
+					return hashScore;
+			}
+		}
+		long alphaOrig=alpha,betaOrig=beta;
+		byte moves[]=moveBuffer[depth];
+		byte noOfMoves=generateMoves(moves);
+		if(noOfMoves==0)
+		{
+			stats.leaves++;
+			return evaluate(node);
+		}
+		int side=(next=='X')?0:1;
+		int ply=rootDepth-depth;
+		orderMoves(moves,moveScores[depth],noOfMoves,hashMove,ply,side,lastMove);
+		byte bestIndex=-1;
+		long returnValue;
+		if(next=='X')
+		{
+			for(byte i=0;i<noOfMoves;i++)
 			{
-				alpha=Math.max(alpha,alphaBeta(node.makeMove(tempSearch.getMove(i)),(byte)(depth-1),alpha,beta,tempPlayer));
+				node.makeMove(moves[i],next);
+				long childScore=alphaBeta((byte)(depth-1),alpha,beta,next,moves[i]);
+				node.unMakeMove(moves[i]);
+				if(stopped)
+					return 0;
+				if((childScore>alpha)||(bestIndex==-1))
+					bestIndex=moves[i];
+				alpha=Math.max(alpha,childScore);
 				if(beta<=alpha)
+				{
+					countCutOff(i);
+					rememberCutOff(moves[i],depth,ply,side,lastMove);
 					break;
+				}
 			}
-			return alpha;
+			returnValue=alpha;
 		}
 		else
 		{
-			for(byte i=0;i<tempSearch.getMaxMoves();i++)
+			for(byte i=0;i<noOfMoves;i++)
 			{
-				beta=Math.min(beta,alphaBeta(node.makeMove(tempSearch.getMove(i)),(byte)(depth-1),alpha,beta,tempPlayer));
+				node.makeMove(moves[i],next);
+				long childScore=alphaBeta((byte)(depth-1),alpha,beta,next,moves[i]);
+				node.unMakeMove(moves[i]);
+				if(stopped)
+					return 0;
+				if((childScore<beta)||(bestIndex==-1))
+					bestIndex=moves[i];
+				beta=Math.min(beta,childScore);
 				if(alpha>=beta)
+				{
+					countCutOff(i);
+					rememberCutOff(moves[i],depth,ply,side,lastMove);
 					break;
+				}
+			}
+			returnValue=beta;
+		}
+		byte bound;
+		if(returnValue<=alphaOrig)
+			bound=TranspositionTable.UPPER_BOUND;
+		else if(returnValue>=betaOrig)
+			bound=TranspositionTable.LOWER_BOUND;
+		else
+			bound=TranspositionTable.EXACT;
+		transpositionTable.store(key,depth,bound,returnValue,node.transformIndex(transform,bestIndex));
+		return returnValue;
+	}
+	/**
+	 * Principal Variation Search (NegaScout) in negamax form, to determine best
+	 * score and move. The first (best ordered) move is searched with the full
+	 * window, the others with a null window just above alpha, which only tells
+	 * if they are better; those which are get searched again with the full window.
+	 * Scores are from the perspective of the side to move. Transposition table
+	 * entries are stored from X's perspective, as <code>alphaBeta()</code> does,
+	 * so the two can share a table.
+	 * @param depth Depth of search
+	 * @param alpha Initial alpha cut-off value
+	 * @param beta Initial beta cut-off value
+	 * @param current Sign of the player who made the last move
+	 * @param lastMove Index of the cell of the last move
+	 * @return The best score, from the perspective of the side to move
+	 */
+	private long principalVariation(byte depth, long alpha, long beta, char current, byte lastMove)
+	{
+		Table node=currentSearchState;
+		if(((++nodes&1023)==0)&&(completedDepth>=0)&&(owner.stopRequested||(System.nanoTime()>deadline)))
+			stopped=true;
+		char next=(current=='X')?'O':'X';
+		if((depth==0)||(node.isComplete()!=-1))
+		{
+			stats.leaves++;
+			return (next=='X')?evaluate(node):-evaluate(node);
+		}
+		int transform=node.getCanonicalTransform();
+		long key=node.getHash(transform)^((next=='O')?SIDE_KEY:0);
+		byte hashMove=-1;
+		stats.probes++;
+		if(transpositionTable.probe(key,hashEntry))
+		{
+			stats.hits++;
+			hashMove=node.inverseTransformIndex(transform,TranspositionTable.getBestMove(hashEntry));
+			if(TranspositionTable.getDepth(hashEntry)>=depth)
+			{
+				long hashScore=TranspositionTable.getScore(hashEntry);
+				byte bound=TranspositionTable.getBound(hashEntry);
+				if(next=='O')
+				{
+					hashScore=-hashScore;
+					bound=flipBound(bound);
+				}
+				if(bound==TranspositionTable.EXACT)
+					return hashScore;
+				if(bound==TranspositionTable.LOWER_BOUND)
+					alpha=Math.max(alpha,hashScore);
+				else
+					beta=Math.min(beta,hashScore);
+				if(alpha>=beta)
+					return hashScore;
+			}
+		}
+		long alphaOrig=alpha,betaOrig=beta;
+		byte moves[]=moveBuffer[depth];
+		byte noOfMoves=generateMoves(moves);
+		if(noOfMoves==0)
+		{
+			stats.leaves++;
+			return (next=='X')?evaluate(node):-evaluate(node);
+		}
+		int side=(next=='X')?0:1;
+		int ply=rootDepth-depth;
+		orderMoves(moves,moveScores[depth],noOfMoves,hashMove,ply,side,lastMove);
+		byte bestIndex=-1;
+		for(byte i=0;i<noOfMoves;i++)
+		{
+			long childScore;
+			node.makeMove(moves[i],next);
+			if(i==0)
+				childScore=-principalVariation((byte)(depth-1),-beta,-alpha,next,moves[i]);
+			else
+			{
+				childScore=-principalVariation((byte)(depth-1),-(alpha+1),-alpha,next,moves[i]);
+				if((childScore>alpha)&&(childScore<beta)&&!stopped)
+					childScore=-principalVariation((byte)(depth-1),-beta,-alpha,next,moves[i]);
+			}
+			node.unMakeMove(moves[i]);
+			if(stopped)
+				return 0;
+			if((childScore>alpha)||(bestIndex==-1))
+				bestIndex=moves[i];
+			alpha=Math.max(alpha,childScore);
+			if(alpha>=beta)
+			{
+				countCutOff(i);
+				rememberCutOff(moves[i],depth,ply,side,lastMove);
+				break;
+			}
+		}
+		byte bound;
+		if(alpha<=alphaOrig)
+			bound=TranspositionTable.UPPER_BOUND;
+		else if(alpha>=betaOrig)
+			bound=TranspositionTable.LOWER_BOUND;
+		else
+			bound=TranspositionTable.EXACT;
+		if(next=='O')
+			transpositionTable.store(key,depth,flipBound(bound),-alpha,node.transformIndex(transform,bestIndex));
+		else
+			transpositionTable.store(key,depth,bound,alpha,node.transformIndex(transform,bestIndex));
+		return alpha;
+	}
+	/**
+	 * This method evaluates a leaf of the search. If the leaf is a sampled one
+	 * and <code>EvaluationEvent</code>s are being recorded, the evaluation is
+	 * recorded too.
+	 * @param node The leaf
+	 * @return The score of the leaf, from X's perspective
+	 */
+	private long evaluate(Table node)
+	{
+		if(((nodes&(EVALUATION_SAMPLE-1))!=0)||!FlightRecorder.isInitialized())
+			return node.getScore();
+		EvaluationEvent event=new EvaluationEvent();
+		event.begin();
+		long score=node.getScore();
+		event.end();
+		if(event.shouldCommit())
+		{
+			event.position=node.toString();
+			event.score=score;
+			event.commit();
+		}
+		return score;
+	}
+	/**
+	 * This method turns a bound of a score from one side's perspective into
+	 * the bound of the negated score, from the other side's perspective.
+	 * @param bound <code>TranspositionTable.EXACT</code>, <code>LOWER_BOUND</code> or <code>UPPER_BOUND</code>
+	 * @return The bound of the negated score
+	 */
+	private static byte flipBound(byte bound)
+	{
+		if(bound==TranspositionTable.LOWER_BOUND)
+			return TranspositionTable.UPPER_BOUND;
+		if(bound==TranspositionTable.UPPER_BOUND)
+			return TranspositionTable.LOWER_BOUND;
+		return bound;
+	}
+	/**
+	 * This method sorts the moves of a node so that the ones most likely to
+	 * cause a cut-off are searched first: the hash move, then the two killer
+	 * moves of the ply, then the countermove of the opponent's last move, then
+	 * the rest by their history score. Moves of equal score keep index order.
+	 * @param moves Moves of the node, sorted in place
+	 * @param scores Buffer for the ordering scores, as long as <code>moves</code>
+	 * @param noOfMoves Number of moves of the node
+	 * @param hashMove Best move remembered in the transposition table, -1 if none
+	 * @param ply Distance of the node from the root
+	 * @param side Side to move (0 for X, 1 for O)
+	 * @param lastMove Index of the cell of the opponent's last move
+	 */
+	private void orderMoves(byte moves[], int scores[], byte noOfMoves, byte hashMove, int ply, int side, byte lastMove)
+	{
+		byte counterMove=counterMoves[side][lastMove];
+		for(byte i=0;i<noOfMoves;i++)
+		{
+			byte move=moves[i];
+			if(move==hashMove)
+				scores[i]=1<<30;
+			else if(move==killers[ply][0])
+				scores[i]=1<<29;
+			else if(move==killers[ply][1])
+				scores[i]=1<<28;
+			else if(move==counterMove)
+				scores[i]=1<<27;
+			else
+				scores[i]=history[side][move];
+			//insertion sort, as there are never more than 121 moves
+			int score=scores[i];
+			int j=i-1;
+			while((j>=0)&&(scores[j]<score))
+			{
+				scores[j+1]=scores[j];
+				moves[j+1]=moves[j];
+				j--;
 			}
-			return beta;
+			scores[j+1]=score;
+			moves[j+1]=move;
+		}
+	}
+	/**
+	 * This method counts a cut-off in the statistics of the search.
+	 * @param moveNo Number of the move which caused it, in the order searched
+	 */
+	private void countCutOff(byte moveNo)
+	{
+		stats.cutOffs++;
+		if(moveNo==0)
+			stats.firstMoveCutOffs++;
+	}
+	/**
+	 * This method updates the killer, countermove and history tables with a
+	 * move which caused a cut-off.
+	 * @param move Index of the cell of the move
+	 * @param depth Remaining depth of the node
+	 * @param ply Distance of the node from the root
+	 * @param side Side which made the move (0 for X, 1 for O)
+	 * @param lastMove Index of the cell of the opponent's last move
+	 */
+	private void rememberCutOff(byte move, byte depth, int ply, int side, byte lastMove)
+	{
+		if(killers[ply][0]!=move)
+		{
+			killers[ply][1]=killers[ply][0];
+			killers[ply][0]=move;
 		}
+		counterMoves[side][lastMove]=move;
+		history[side][move]+=depth*depth;
+		//keep history scores below those of the killer and countermoves
+		if(history[side][move]>=(1<<26))
+			ageHistory();
+	}
+	/**
+	 * This method halves all history scores, so that recent cut-offs count
+	 * more than old ones. Called between searches and when a score grows too big.
+	 */
+	private void ageHistory()
+	{
+		for(int i=0;i<history.length;i++)
+			for(int j=0;j<history[i].length;j++)
+				history[i][j]>>=1;
+	}
+	/**
+	 * This method makes the move ordering tables ready for a search, creating
+	 * them if this is the first search (or the table size has changed) and
+	 * aging them otherwise.
+	 */
+	private void prepareHeuristics()
+	{
+		int size=currentState.getSizeOfTable();
+		moveScores=new int[searchDepth+1][size];
+		killers=new byte[searchDepth+2][2];
+		for(int i=0;i<killers.length;i++)
+			killers[i][0]=killers[i][1]=-1;
+		if((history==null)||(history[0].length!=size))
+		{
+			history=new int[2][size];
+			counterMoves=new byte[2][size];
+			for(int i=0;i<2;i++)
+				Arrays.fill(counterMoves[i],(byte)-1);
+		}
+		else
+			ageHistory();
+	}
+	/**
+	 * This method fills the given buffer with the indices of the empty cells
+	 * of the currentSearchState, in index order.
+	 * @param moves Buffer to hold the moves, at least as long as the table.
+	 * @return The number of moves generated.
+	 */
+	private byte generateMoves(byte moves[])
+	{
+		byte noOfMoves=0;
+		for(byte i=0;i<currentSearchState.getSizeOfTable();i++)
+			if(currentSearchState.isEmpty(i))
+				moves[noOfMoves++]=i;
+		return noOfMoves;
 	}
 	/**
 	 * The generic getter for the bestMove variable has been modified such
@@ -192,45 +748,523 @@ public class Search
 	 * every move from the moveStack, evaluates the resulting states (table
 	 * positions) and then picks the best move out of the moveStack and
 	 * sets this as the best move, before returning it.
+	 * The search itself works on a single copy of the current state.
+	 * If a time limit or a game clock has been set, the search is deepened
+	 * one ply at a time until the time runs out, and the best move of the
+	 * last iteration to complete is returned. Otherwise it searches once to
+	 * the (optimized) search depth.
+	 * Every call is recorded by a <code>SearchEvent</code>, and every
+	 * iteration by an <code>IterationEvent</code>, when Flight Recorder is on.
 	 * @return Best Move found in the current Search
 	 */
 	public Move getBestMove()
 	{
-		optimizeSearchDepth();
+		//the first event loaded starts up the whole of Flight Recorder, which takes a while
+		if(!FlightRecorder.isInitialized())
+			return searchBestMove();
+		SearchEvent event=new SearchEvent();
+		event.begin();
+		Move move=searchBestMove();
+		event.end();
+		if(event.shouldCommit())
+		{
+			event.side=currentState.getNoOfRows();
+			event.emptyCells=currentState.getNoOfDs();
+			event.position=currentState.toString();
+			event.sideToMove=currentPlayer.getPlayerSign();
+			event.threads=threads;
+			event.depth=completedDepth;
+			event.nodes=nodes;
+			event.move=move.getIndex();
+			event.score=bestScore;
+			event.commit();
+		}
+		return move;
+	}
+	/**
+	 * This method runs the search of <code>getBestMove()</code>.
+	 * @return Best Move found in the current Search
+	 */
+	private Move searchBestMove()
+	{
+		boolean timed=((time>0)||(clockTime>=0));
+		if(!timed)
+			optimizeSearchDepth();
 		infinity=currentState.getWinScore()+1;
-		double winScore=currentState.getWinScore();
-		if(currentPlayer.getPlayerSign()=='O')
+		long winScore=currentState.getWinScore();
+		char sign=currentPlayer.getPlayerSign();
+		if(sign=='O')
 			winScore*=-1;
 		bestScore=-infinity;
 		currentScore=bestScore;
+		searchCount++;
+		currentSearchState=currentState.clone();
+		if(transpositionTable==null)
+			transpositionTable=new TranspositionTable();
+		transpositionTable.newSearch();
 		moveGen();
+		moveBuffer=new byte[searchDepth+1][currentState.getSizeOfTable()];
+		prepareHeuristics();
+		nodes=0;
+		stats.start(searchDepth);
+		completedDepth=-1;
+		stopped=false;
+		stopRequested=false;
+		//a move which wins at once needs no search
 		for(byte i=0;i<maxMoves;i++)
 		{
-			currentSearchState=currentState.makeMove(moveStack[i]);
-			if(currentSearchState.getScore()==winScore)
+			byte index=Move.indexOf(moveStack[i]);
+			currentSearchState.makeMove(index,sign);
+			currentScore=currentSearchState.getScore();
+			currentSearchState.unMakeMove(index);
+			if(currentScore==winScore)
 			{
-				setBestScore(currentSearchState.getScore());
-				setBestMove(moveStack[i]);
+				setBestScore(winScore);
+				setBestMove(new Move(moveStack[i]));
+				stats.finish(nodes);
 				return bestMove;
 			}
-			currentScore=alphaBeta(currentSearchState,searchDepth,-infinity,infinity,currentPlayer);
-			if(currentPlayer.getPlayerSign()=='O')
-				currentScore*=-1;
-			if(currentScore>bestScore)
+		}
+		//so does a win by a sequence of threats, however deep
+		if(maxThreats>0)
+		{
+			if(threatSearch==null)
+				threatSearch=new ThreatSearch();
+			threatSearch.setMaxThreats(maxThreats);
+			byte threatMove=threatSearch.findWin(currentState,sign);
+			nodes+=threatSearch.getNodes();
+			if(threatMove!=-1)
 			{
-				setBestScore(currentScore);
-				setBestMove(moveStack[i]);
+				setBestScore(winScore);
+				setBestMove(new Move(threatMove,sign));
+				stats.finish(nodes);
+				return bestMove;
 			}
 		}
+		if(!timed)
+		{
+			deadline=Long.MAX_VALUE;
+			startHelpers();
+			searchIteration(searchDepth);
+			stopHelpers();
+			stats.finish(nodes);
+			completedDepth=searchDepth;
+			setBestScore(iterationBestScore);
+			setBestMove(new Move(iterationBestMove));
+			return bestMove;
+		}
+		long startTime=System.nanoTime();
+		//without a clock, an infinite time limit gives a time slice too long to count in nanoseconds
+		long timeSlice=Math.min(getTimeSlice(),Long.MAX_VALUE/4000000L);
+		deadline=startTime+(timeSlice*1000000L);
+		startHelpers();
+		deepen(startTime,timeSlice,winScore);
+		stopHelpers();
+		stats.finish(nodes);
 		return bestMove;
 	}
+	/**
+	 * This method deepens the search one ply at a time, from depth 0, until
+	 * the time runs out, the search depth is reached or the game is decided.
+	 * The best move and score of the last iteration to complete are kept.
+	 * @param startTime Time (as of <code>System.nanoTime()</code>) the search began
+	 * @param timeSlice Time given to the search, in milliseconds
+	 * @param winScore Score of a won game, from the perspective of the player to move
+	 */
+	private void deepen(long startTime, long timeSlice, long winScore)
+	{
+		for(byte depth=0;depth<=searchDepth;depth++)
+		{
+			searchIteration(depth);
+			if(stopped)
+				break;
+			completedDepth=depth;
+			setBestScore(iterationBestScore);
+			setBestMove(new Move(iterationBestMove));
+			//search the best move of this iteration first in the next one
+			for(byte i=1;i<maxMoves;i++)
+				if(moveStack[i]==iterationBestMove)
+				{
+					System.arraycopy(moveStack,0,moveStack,1,i);
+					moveStack[0]=iterationBestMove;
+					break;
+				}
+			//a won or lost game needs no deeper search
+			if(Math.abs(bestScore)==Math.abs(winScore))
+				break;
+			//the next iteration takes longer than all before it, so it would not complete
+			if((System.nanoTime()-startTime)*2>(timeSlice*1000000L))
+				break;
+		}
+	}
+	/**
+	 * This method runs one iteration of the search with <code>searchRoot()</code>,
+	 * books its statistics and records it by an <code>IterationEvent</code>.
+	 * @param depth Depth of search after the root move, in half-plies
+	 */
+	private void searchIteration(byte depth)
+	{
+		if(!FlightRecorder.isInitialized())
+		{
+			searchRoot(depth);
+			stats.endIteration(depth,nodes);
+			return;
+		}
+		IterationEvent event=new IterationEvent();
+		event.begin();
+		searchRoot(depth);
+		stats.endIteration(depth,nodes);
+		event.end();
+		if(event.shouldCommit())
+		{
+			event.depth=depth;
+			event.nodes=stats.getNodes(depth);
+			event.completed=!stopped;
+			event.bestMove=Move.indexOf(iterationBestMove);
+			event.score=iterationBestScore;
+			event.commit();
+		}
+	}
+	/**
+	 * This method searches every move of the moveStack, in order, to the given
+	 * depth, and leaves the first of the best ones in <code>iterationBestMove</code>
+	 * and its score in <code>iterationBestScore</code>.
+	 * The window of every move is narrowed to the best score found so far, as a
+	 * move is only taken if it is strictly better.
+	 * @param depth Depth of search after the root move, in half-plies
+	 */
+	private void searchRoot(byte depth)
+	{
+		if((threads>1)&&(parallelType==ROOT_SPLITTING))
+		{
+			searchRootParallel(depth);
+			return;
+		}
+		rootDepth=depth;
+		iterationBestScore=-infinity;
+		iterationBestMove=moveStack[0];
+		for(byte i=0;i<maxMoves;i++)
+		{
+			currentScore=searchRootMove(Move.indexOf(moveStack[i]),depth,iterationBestScore);
+			if(stopped)
+				return;
+			if(currentScore>iterationBestScore)
+			{
+				iterationBestScore=currentScore;
+				iterationBestMove=moveStack[i];
+			}
+		}
+	}
+	/**
+	 * This method searches one root move to the given depth.
+	 * With Principal Variation Search, the move is tried with a null window
+	 * first, unless there is no best score yet.
+	 * @param index Index of the cell of the root move
+	 * @param depth Depth of search after the root move, in half-plies
+	 * @param bestSoFar Best score of the root moves searched so far, from the
+	 * perspective of the player to move; the move is only searched for a
+	 * strictly better score
+	 * @return The score of the move from the perspective of the player to move,
+	 * exact if better than <code>bestSoFar</code>, at most <code>bestSoFar</code> otherwise
+	 */
+	private long searchRootMove(byte index, byte depth, long bestSoFar)
+	{
+		char sign=currentPlayer.getPlayerSign();
+		long returnValue;
+		currentSearchState.makeMove(index,sign);
+		if(searchType==PRINCIPAL_VARIATION)
+		{
+			if(bestSoFar<=-infinity)
+				returnValue=-principalVariation(depth,-infinity,-bestSoFar,sign,index);
+			else
+			{
+				returnValue=-principalVariation(depth,-(bestSoFar+1),-bestSoFar,sign,index);
+				if((returnValue>bestSoFar)&&!stopped)
+					returnValue=-principalVariation(depth,-infinity,-bestSoFar,sign,index);
+			}
+		}
+		else if(sign=='X')
+			returnValue=alphaBeta(depth,bestSoFar,infinity,sign,index);
+		else
+			returnValue=-alphaBeta(depth,-infinity,-bestSoFar,sign,index);
+		currentSearchState.unMakeMove(index);
+		return returnValue;
+	}
+	/**
+	 * Parallel version of <code>searchRoot()</code>. Every root move is a task of
+	 * a work-stealing pool of <code>threads</code> threads, searched by a worker
+	 * with its own copy of the table. The best score found so far is shared,
+	 * so moves started later get a narrower window.
+	 * Every move is searched for a score at least as good as the best so far
+	 * (not only strictly better), so every move sharing the best score gets its
+	 * exact score. The first of them in the moveStack is taken, which is the
+	 * move the serial search would take, whatever order the tasks ran in.
+	 * @param depth Depth of search after the root move, in half-plies
+	 */
+	private void searchRootParallel(byte depth)
+	{
+		preparePool();
+		long scores[]=new long[maxMoves];
+		AtomicLong sharedBest=new AtomicLong(-infinity);
+		RootMoveTask tasks[]=new RootMoveTask[maxMoves];
+		for(byte i=0;i<maxMoves;i++)
+			tasks[i]=new RootMoveTask(i,depth,scores,sharedBest);
+		pool.invoke(new RootSplitTask(tasks));
+		for(Search worker:idleWorkers)
+		{
+			nodes+=worker.nodes;
+			worker.nodes=0;
+			stats.add(worker.stats);
+		}
+		if(stopped)
+			return;
+		iterationBestScore=-infinity;
+		iterationBestMove=moveStack[0];
+		for(byte i=0;i<maxMoves;i++)
+			if(scores[i]>iterationBestScore)
+			{
+				iterationBestScore=scores[i];
+				iterationBestMove=moveStack[i];
+			}
+	}
+	/**
+	 * This method creates the pool of threads of the search, or creates it
+	 * again if the number of threads has changed.
+	 */
+	private void preparePool()
+	{
+		if((pool==null)||(pool.getParallelism()!=threads))
+		{
+			if(pool!=null)
+				pool.shutdown();
+			pool=new ForkJoinPool(threads);
+			idleWorkers=new ConcurrentLinkedQueue<Search>();
+			helpers=null;
+		}
+	}
+	/**
+	 * This method starts the helpers of a Lazy SMP search, if the search is one.
+	 * Every helper deepens its own search of the current state, one ply at a
+	 * time, as the caller's thread does, until <code>stopHelpers()</code> is called.
+	 * They all share the transposition table of this search, so the helpers fill
+	 * it with results the caller's thread finds there later, and they with its.
+	 * So that they do not all search the same nodes in the same order, helper k
+	 * starts k%2 plies deeper and searches the root moves rotated by k places.
+	 */
+	private void startHelpers()
+	{
+		if((threads<2)||(parallelType!=LAZY_SMP))
+			return;
+		preparePool();
+		if(helpers==null)
+		{
+			helpers=new Search[threads-1];
+			helperTasks=new HelperTask[threads-1];
+			for(int i=0;i<helpers.length;i++)
+			{
+				helpers[i]=new Search();
+				helpers[i].helperNo=i+1;
+			}
+		}
+		for(int i=0;i<helpers.length;i++)
+		{
+			Search helper=helpers[i];
+			helper.transpositionTable=transpositionTable;
+			prepareWorker(helper);
+			helper.deadline=Long.MAX_VALUE;
+			helper.completedDepth=-1;
+			helper.maxMoves=maxMoves;
+			helper.moveStack=new short[maxMoves];
+			for(int j=0;j<maxMoves;j++)
+				helper.moveStack[j]=moveStack[(j+helper.helperNo)%maxMoves];
+			helperTasks[i]=new HelperTask(helper);
+			pool.execute(helperTasks[i]);
+		}
+	}
+	/**
+	 * This method stops the helpers of a Lazy SMP search, waits for them to
+	 * finish and adds their nodes and statistics to those of this search.
+	 */
+	private void stopHelpers()
+	{
+		if((threads<2)||(parallelType!=LAZY_SMP))
+			return;
+		for(Search helper:helpers)
+			helper.stopped=true;
+		for(int i=0;i<helpers.length;i++)
+		{
+			helperTasks[i].join();
+			nodes+=helpers[i].nodes;
+			stats.add(helpers[i].stats);
+		}
+	}
+	/**
+	 * This method makes a worker ready to search root moves of the current
+	 * search: it gets its own copy of the table and fresh move buffers.
+	 * A worker which shares the transposition table of this search is given
+	 * it before being made ready; others get one of their own.
+	 * @param worker The worker to be made ready
+	 */
+	private void prepareWorker(Search worker)
+	{
+		worker.currentState=currentState;
+		worker.currentPlayer=currentPlayer;
+		worker.searchDepth=searchDepth;
+		worker.searchType=searchType;
+		worker.infinity=infinity;
+		worker.currentSearchState=currentState.clone();
+		if(worker.transpositionTable==null)
+			worker.transpositionTable=new TranspositionTable();
+		if(worker.transpositionTable!=transpositionTable)
+			worker.transpositionTable.newSearch();
+		worker.moveBuffer=new byte[searchDepth+1][currentState.getSizeOfTable()];
+		worker.prepareHeuristics();
+		worker.nodes=0;
+		worker.stats.clearCounters();
+		worker.stopped=false;
+		worker.preparedSearch=searchCount;
+		worker.owner=this;
+	}
+	/**
+	 * The <code>HelperTask</code> runs one helper of a Lazy SMP search: it
+	 * deepens the helper's search until the helper is stopped or has searched
+	 * to the search depth. What it finds is only kept in the transposition table.
+	 * @author Kenshin Himura
+	 *
+	 */
+	private static class HelperTask extends RecursiveAction
+	{
+		private static final long serialVersionUID=1L;
+		/**
+		 * The helper run by the task. Tasks are never serialized, so it need not be.
+		 */
+		private final transient Search helper;
+		/**
+		 * Constructor of <code>HelperTask</code>.
+		 * @param helper The helper run by the task
+		 */
+		HelperTask(Search helper)
+		{
+			this.helper=helper;
+		}
+		@Override
+		protected void compute()
+		{
+			for(int depth=helper.helperNo%2;(depth<=helper.searchDepth)&&!helper.stopped;depth++)
+				helper.searchRoot((byte)depth);
+		}
+	}
+	/**
+	 * The <code>RootSplitTask</code> runs all the root move tasks of an iteration
+	 * in the pool and waits for them to finish.
+	 * @author Kenshin Himura
+	 *
+	 */
+	private class RootSplitTask extends RecursiveAction
+	{
+		private static final long serialVersionUID=1L;
+		/**
+		 * The tasks, one per root move.
+		 */
+		private final RootMoveTask tasks[];
+		/**
+		 * Constructor of <code>RootSplitTask</code>.
+		 * @param tasks The tasks, one per root move
+		 */
+		RootSplitTask(RootMoveTask tasks[])
+		{
+			this.tasks=tasks;
+		}
+		@Override
+		protected void compute()
+		{
+			invokeAll(tasks);
+		}
+	}
+	/**
+	 * The <code>RootMoveTask</code> searches one root move with an idle worker,
+	 * and raises the shared best score if the move is better.
+	 * @author Kenshin Himura
+	 *
+	 */
+	private class RootMoveTask extends RecursiveAction
+	{
+		private static final long serialVersionUID=1L;
+		/**
+		 * Index of the move in the moveStack.
+		 */
+		private final byte moveNo;
+		/**
+		 * Depth of search after the root move, in half-plies.
+		 */
+		private final byte depth;
+		/**
+		 * Scores of all root moves, indexed like the moveStack.
+		 */
+		private final long scores[];
+		/**
+		 * Best score found so far by any task.
+		 */
+		private final AtomicLong sharedBest;
+		/**
+		 * Constructor of <code>RootMoveTask</code>.
+		 */
+		RootMoveTask(byte moveNo, byte depth, long scores[], AtomicLong sharedBest)
+		{
+			this.moveNo=moveNo;
+			this.depth=depth;
+			this.scores=scores;
+			this.sharedBest=sharedBest;
+		}
+		@Override
+		protected void compute()
+		{
+			if(stopped)
+				return;
+			Search worker=idleWorkers.poll();
+			if(worker==null)
+				worker=new Search();
+			if(worker.preparedSearch!=searchCount)
+				prepareWorker(worker);
+			worker.deadline=deadline;
+			worker.completedDepth=completedDepth;
+			worker.rootDepth=depth;
+			long score=worker.searchRootMove(Move.indexOf(moveStack[moveNo]),depth,sharedBest.get()-1);
+			if(worker.stopped)
+				stopped=true;
+			scores[moveNo]=score;
+			long best;
+			while(score>(best=sharedBest.get()))
+				if(sharedBest.compareAndSet(best,score))
+					break;
+			idleWorkers.add(worker);
+		}
+	}
+	/**
+	 * This method is used to work out how long the current search may take:
+	 * the time limit if one has been set, or an even share of the game clock
+	 * over the moves the player has left, plus the increment, but never more
+	 * than nine tenths of the clock.
+	 * @return The time limit of the search in milliseconds (at least 1)
+	 */
+	public long getTimeSlice()
+	{
+		long returnValue=(time>0)?(long)time:Long.MAX_VALUE;
+		if(clockTime>=0)
+		{
+			int movesLeft=Math.max(1,(currentState.getNoOfDs()+1)/2);
+			long slice=(clockTime/movesLeft)+clockIncrement;
+			returnValue=Math.min(returnValue,Math.min(slice,(clockTime*9)/10));
+		}
+		return Math.max(1,returnValue);
+	}
 	/**
 	 * Generic getter method to get the current best score of the Search.
 	 * It, being a private variable, can only be accessed using public
 	 * getter and setter methods.
 	 * @return Current Best Score of the Search
 	 */
-	public double getBestScore()
+	public long getBestScore()
 	{
 		return bestScore;
 	}
@@ -258,7 +1292,7 @@ public class Search
 	 * Generic getter method to access the currentScore of the search.
 	 * @return The current score of the <code>Search</code>
 	 */
-	public double getCurrentScore()
+	public long getCurrentScore()
 	{
 		return currentScore;
 	}
@@ -298,14 +1332,15 @@ public class Search
 	 */
 	public Move getMove(byte moveNo)
 	{
-		return moveStack[moveNo];
+		return new Move(moveStack[moveNo]);
 	}
 	/**
 	 * Generic getter method to access the moveStack generated in a search.
 	 * Used by the miniMax or negaMax (or other future) search functions.
-	 * @return The generated stack of moves
+	 * Only the first <code>getMaxMoves()</code> entries are valid.
+	 * @return The generated stack of moves, packed as by <code>Move.encode()</code>
 	 */
-	public Move[] getMoveStack()
+	public short[] getMoveStack()
 	{
 		return moveStack;
 	}
@@ -319,6 +1354,131 @@ public class Search
 	{
 		return searchDepth;
 	}
+	/**
+	 * Generic getter method to get the number of nodes visited by the last search.
+	 * @return Number of nodes visited
+	 */
+	public long getNodes()
+	{
+		return nodes;
+	}
+	/**
+	 * Generic getter method to get the statistics of the last search. The
+	 * same object is filled again by every search.
+	 * @return Statistics of the last search
+	 */
+	public SearchStats getStats()
+	{
+		return stats;
+	}
+	/**
+	 * Generic getter method to get the deepest depth completely searched by the
+	 * last search.
+	 * @return Depth in half-plies after the root move, -1 if none completed
+	 */
+	public byte getCompletedDepth()
+	{
+		return completedDepth;
+	}
+	/**
+	 * This method is used to give the search a game clock instead of (or as well
+	 * as) a fixed time limit. The search then takes a slice of the remaining time.
+	 * @param clockTime Remaining time on the clock of the player to move in
+	 * milliseconds, -1 for no clock
+	 * @param clockIncrement Time added to the clock after every move in milliseconds
+	 */
+	public void setClock(long clockTime, long clockIncrement)
+	{
+		this.clockTime = clockTime;
+		this.clockIncrement = clockIncrement;
+	}
+	/**
+	 * Generic getter method to get the search algorithm of the Search.
+	 * @return <code>ALPHA_BETA</code> or <code>PRINCIPAL_VARIATION</code>
+	 */
+	public byte getSearchType()
+	{
+		return searchType;
+	}
+	/**
+	 * Generic setter method to set the search algorithm of the Search.
+	 * @param searchType <code>ALPHA_BETA</code> or <code>PRINCIPAL_VARIATION</code>
+	 */
+	public void setSearchType(byte searchType)
+	{
+		this.searchType = searchType;
+	}
+	/**
+	 * Generic getter method to get the number of threads of the Search.
+	 * @return Number of threads of the search
+	 */
+	public int getThreads()
+	{
+		return threads;
+	}
+	/**
+	 * Generic setter method to set the number of threads of the Search.
+	 * With more than one thread, the search is run in parallel, as set by
+	 * <code>setParallelType()</code>.
+	 * @param threads Number of threads of the search, at least 1
+	 */
+	public void setThreads(int threads)
+	{
+		this.threads = Math.max(1,threads);
+	}
+	/**
+	 * Generic getter method to get the parallel search type of the Search.
+	 * @return <code>ROOT_SPLITTING</code> or <code>LAZY_SMP</code>
+	 */
+	public byte getParallelType()
+	{
+		return parallelType;
+	}
+	/**
+	 * Generic setter method to set the parallel search type of the Search.
+	 * With <code>ROOT_SPLITTING</code>, the move found depends only on the
+	 * position and the depth, not on the number of threads. With
+	 * <code>LAZY_SMP</code>, the threads help each other only through the
+	 * transposition table, which scales better but may find a different
+	 * (equally good at the depth searched) move from one run to the next.
+	 * @param parallelType <code>ROOT_SPLITTING</code> or <code>LAZY_SMP</code>
+	 */
+	public void setParallelType(byte parallelType)
+	{
+		this.parallelType = parallelType;
+	}
+	/**
+	 * This method asks the current search to stop, from another thread. A timed
+	 * search stops as soon as it has completed its first iteration, and returns
+	 * the best move of the last iteration completed. A search to a fixed depth
+	 * (without a time limit) is not stopped.
+	 */
+	public void stop()
+	{
+		stopRequested=true;
+	}
+	/**
+	 * This method forgets everything learnt in earlier searches: it empties the
+	 * transposition table and the history and countermove tables.
+	 */
+	public void clear()
+	{
+		if(transpositionTable!=null)
+			transpositionTable.clear();
+		history=null;
+		counterMoves=null;
+	}
+	/**
+	 * This method stops the threads of the Search, if it has any. The Search
+	 * may still be used afterwards; the threads are then started again.
+	 */
+	public void shutdown()
+	{
+		if(pool!=null)
+			pool.shutdown();
+		pool=null;
+		helpers=null;
+	}
 	/**
 	 * Generic getter method to get the time limit of the Search.
 	 * It, being a private variable, can only be accessed using public
@@ -335,23 +1495,12 @@ public class Search
 	 */
 	private void moveGen()
 	{
-			maxMoves=currentSearchState.getNoOfDs();
-			moveStack=new Move[maxMoves];
-			byte j=-1;
-			for(byte i=0;i<maxMoves;i++)
-			{
-				for(;j<(currentSearchState.getSizeOfTable()-1);)
-				{
-					j++;
-					if(currentSearchState.isEmpty(j))
-					{
-						Table nextState=currentSearchState.clone();
-						nextState.updateTable(j, currentPlayer.getPlayerSign());
-						moveStack[i]=new Move(currentSearchState,nextState);
-						break;
-					}
-				}
-			}
+		if((moveStack==null)||(moveStack.length<currentSearchState.getSizeOfTable()))
+			moveStack=new short[currentSearchState.getSizeOfTable()];
+		maxMoves=0;
+		for(byte i=0;i<currentSearchState.getSizeOfTable();i++)
+			if(currentSearchState.isEmpty(i))
+				moveStack[maxMoves++]=Move.encode(i,currentPlayer.getPlayerSign());
 	}
 	/**
 	 * Generic setter method to set the best move of the Search.
@@ -369,7 +1518,7 @@ public class Search
 	 * getter and setter methods.
 	 * @param currentScore2 Best Score of the Search
 	 */
-	public void setBestScore(double currentScore2)
+	public void setBestScore(long currentScore2)
 	{
 		this.bestScore = currentScore2;
 	}
@@ -397,7 +1546,7 @@ public class Search
 	 * Generic setter method to set the currentScore of the search.
 	 * @param currentScore The current score of the <code>Search</code>
 	 */
-	public void setCurrentScore(float currentScore)
+	public void setCurrentScore(long currentScore)
 	{
 		this.currentScore = currentScore;
 	}
@@ -431,9 +1580,9 @@ public class Search
 	/**
 	 * Generic setter method to set the moveStack in a search.
 	 * Not used by me. Simply declared as a good programming practice.
-	 * @param moveStack The stack of moves to be set
+	 * @param moveStack The stack of moves to be set, packed as by <code>Move.encode()</code>
 	 */
-	public void setMoveStack(Move[] moveStack)
+	public void setMoveStack(short[] moveStack)
 	{
 		this.moveStack = moveStack;
 	}
@@ -447,11 +1596,31 @@ public class Search
 	{
 		this.searchDepth = searchDepth;
 	}
+	/**
+	 * Generic getter method to get the transposition table of the Search.
+	 * @return The transposition table, <code>null</code> before the first search
+	 * unless one has been set.
+	 */
+	public TranspositionTable getTranspositionTable()
+	{
+		return transpositionTable;
+	}
+	/**
+	 * Generic setter method to set the transposition table of the Search.
+	 * Can be used to keep what has been learnt from one search to the next.
+	 * @param transpositionTable The transposition table to be used
+	 */
+	public void setTranspositionTable(TranspositionTable transpositionTable)
+	{
+		this.transpositionTable = transpositionTable;
+	}
 	/**
 	 * Generic setter method to set the time limit of the Search.
 	 * It, being a private variable, can only be accessed using public
 	 * getter and setter methods.
-	 * @param time Time Limit of the Search in milliseconds
+	 * @param time Time Limit of the Search in milliseconds;
+	 * <code>Float.POSITIVE_INFINITY</code> to deepen until the search depth
+	 * is reached or <code>stop()</code> is called
 	 */
 	public void setTime(float time)
 	{
@@ -459,31 +1628,148 @@ public class Search
 	}
 	/**
 	 * This is the function which is used to optimize the search depth
-	 * depending upon the free memory available to the JAVA Virtual Machine.
-	 * For each searchDepth, the memory usage is calculated and the max
-	 * possible searchDepth is calculated. Then it is compared with preset
-	 * conditions to minimize search depth to improve speed on larger
-	 * board sizes. Used so that this app may be ported to Android with
-	 * a GUI! :D
+	 * depending upon the speed of the machine it runs on. It used to cap the
+	 * depth by the number of rows of the table alone (5, 3 and 1 plies from
+	 * 4x4, 6x6 and 8x8 up), whatever the machine. Now the number of nodes a
+	 * search of every depth would take is estimated with the branching factor
+	 * measured by <code>calibrate()</code> and the empty cells left, and the
+	 * deepest depth which fits into <code>latencyTarget</code> at the measured
+	 * nodes per second is taken. So a faster machine searches deeper, and the
+	 * depth grows by itself as the table fills up.
+	 * The search depth set is never exceeded, and at least one ply is searched.
 	 */
 	public void optimizeSearchDepth()
 	{
-		int expectedTables=1;
-		byte maxSearchDepth;
-		for(maxSearchDepth=2;(maxSearchDepth<=searchDepth);maxSearchDepth++)
-		{
-			expectedTables=maxMoves;
-			for(byte k=0;k<maxSearchDepth;k++)
-				expectedTables*=currentSearchState.getNoOfDs()-k;
-		}
-		searchDepth=(byte)Math.min(searchDepth,maxSearchDepth);
-		if((searchDepth/10)>1)
-			searchDepth=(byte)Math.min(10,searchDepth);
-		if(currentState.getNoOfRows()>3)
-			searchDepth=(byte)Math.min(5,searchDepth);
-		if(currentState.getNoOfRows()>5)
-			searchDepth=(byte)Math.min(3,searchDepth);
-		if(currentState.getNoOfRows()>7)
-			searchDepth=(byte)Math.min(1,searchDepth);
+		if(latencyTarget<=0)
+			return;
+		calibrate();
+		double budget=nodesPerSecond*latencyTarget/1000;
+		int empty=currentState.getNoOfDs();
+		//root moves, then every ply below them
+		double expectedNodes=Math.pow(Math.max(1,empty),branchingExponent);
+		byte depth;
+		for(depth=0;depth<searchDepth;depth++)
+		{
+			expectedNodes*=Math.pow(Math.max(1,empty-depth-1),branchingExponent);
+			if(expectedNodes>budget)
+				break;
+		}
+		searchDepth=(byte)Math.min(searchDepth,Math.max(1,depth));
+	}
+	/**
+	 * This method measures how fast this machine searches, the first time it
+	 * is called. It searches the 5x5 table with X in the middle, one ply deeper
+	 * at a time and with an empty transposition table each time, for about a
+	 * tenth of a second: once to warm up, and once more to measure. A search
+	 * still running at the end of the tenth of a second is stopped and left
+	 * out, so a slow or cold machine cannot make it take much longer. The
+	 * deepest search completed in the second round gives the nodes per second, and the exponent
+	 * k which fits its number of nodes to the product of e^k over its plies,
+	 * e being the empty cells at every ply. Both are kept for
+	 * <code>optimizeSearchDepth()</code>.
+	 * It may be called at start-up, so that the first move is not delayed.
+	 */
+	public static synchronized void calibrate()
+	{
+		if(nodesPerSecond>0)
+			return;
+		Table table=new Table(CALIBRATION_SIDE,CALIBRATION_SIDE);
+		byte size=table.getSizeOfTable();
+		byte firstMove=(byte)(size/2);
+		table.makeMove(firstMove,'X');
+		Search search=new Search();
+		search.currentState=table;
+		search.currentSearchState=table;
+		search.searchDepth=size;
+		search.infinity=table.getWinScore()+1;
+		search.transpositionTable=new TranspositionTable();
+		search.moveBuffer=new byte[size+1][size];
+		search.prepareHeuristics();
+		//lets alphaBeta() stop at the deadline
+		search.completedDepth=0;
+		double measuredNodesPerSecond=0,measuredExponent=1;
+		for(int round=0;round<2;round++)
+		{
+			long start=System.nanoTime();
+			search.deadline=start+CALIBRATION_TIME*1000000L;
+			double logOfTree=0;
+			for(byte depth=1;depth<size-1;depth++)
+			{
+				long depthStart=System.nanoTime();
+				search.transpositionTable.clear();
+				search.nodes=0;
+				search.stopped=false;
+				search.rootDepth=depth;
+				search.alphaBeta(depth,-search.infinity,search.infinity,'X',firstMove);
+				//a depth cut off by the deadline is not measured
+				if(search.stopped)
+					break;
+				long now=System.nanoTime();
+				//the deepest ply of this search had size-depth empty cells
+				logOfTree+=Math.log(size-depth);
+				measuredNodesPerSecond=search.nodes*1e9/Math.max(1,now-depthStart);
+				measuredExponent=Math.log(search.nodes)/logOfTree;
+				if((now-start)*2>CALIBRATION_TIME*1000000L)
+					break;
+			}
+		}
+		branchingExponent=Math.min(1,Math.max(0.25,measuredExponent));
+		nodesPerSecond=measuredNodesPerSecond;
+	}
+	/**
+	 * Generic getter method to get the nodes per second of this machine,
+	 * measured by <code>calibrate()</code>.
+	 * @return Nodes searched per second, 0 before calibration
+	 */
+	public static double getNodesPerSecond()
+	{
+		return nodesPerSecond;
+	}
+	/**
+	 * Generic getter method to get the branching factor exponent measured
+	 * by <code>calibrate()</code>.
+	 * @return Exponent k such that a ply with e empty cells multiplies the
+	 * nodes of a search by e^k, 0 before calibration
+	 */
+	public static double getBranchingExponent()
+	{
+		return branchingExponent;
+	}
+	/**
+	 * Generic getter method to get the latency target of the Search.
+	 * @return Time a search without a time limit should take, in milliseconds
+	 */
+	public float getLatencyTarget()
+	{
+		return latencyTarget;
+	}
+	/**
+	 * Generic getter method to get the length of the sequences of threats
+	 * looked for before the search.
+	 * @return Number of threats of the longest sequence looked for, 0 if none are
+	 */
+	public int getMaxThreats()
+	{
+		return maxThreats;
+	}
+	/**
+	 * Generic setter method to set the length of the sequences of threats
+	 * looked for before the search. A win found this way is played without
+	 * searching.
+	 * @param maxThreats Number of threats of the longest sequence looked for,
+	 * 0 not to look for any
+	 */
+	public void setMaxThreats(int maxThreats)
+	{
+		this.maxThreats = maxThreats;
+	}
+	/**
+	 * Generic setter method to set the latency target of the Search.
+	 * @param latencyTarget Time a search without a time limit should take, in
+	 * milliseconds; zero or less to always search to the search depth set
+	 */
+	public void setLatencyTarget(float latencyTarget)
+	{
+		this.latencyTarget = latencyTarget;
 	}
 }
\ No newline at end of file
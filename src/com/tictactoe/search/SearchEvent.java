@@ -0,0 +1,87 @@
+/*
+ * This file is part of KenTacToe, (c) Kenshin Himura, 2013.
+ *
+ * KenTacToe is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KenTacToe is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KenTacToe.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.tictactoe.search;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The <code>SearchEvent</code> is the Flight Recorder event of one call of
+ * <code>Search.getBestMove()</code>: its duration, the position searched and
+ * what the search found. It is enabled by the default recording settings, and
+ * costs nothing worth measuring when no recording is running.
+ * @author Kenshin Himura
+ *
+ */
+@Name("com.tictactoe.Search")
+@Label("Search")
+@Category({"KenTacToe","Search"})
+@Description("A search for the best move of a position")
+@StackTrace(false)
+public final class SearchEvent extends jdk.jfr.Event
+{
+	/**
+	 * Number of rows (and columns) of the table.
+	 */
+	@Label("Side")
+	byte side;
+	/**
+	 * Empty cells of the table searched.
+	 */
+	@Label("Empty Cells")
+	byte emptyCells;
+	/**
+	 * The table searched, as written by <code>Table.toString()</code>.
+	 */
+	@Label("Position")
+	String position;
+	/**
+	 * Sign of the side to move.
+	 */
+	@Label("Side To Move")
+	char sideToMove;
+	/**
+	 * Number of threads of the search.
+	 */
+	@Label("Threads")
+	int threads;
+	/**
+	 * Deepest depth completely searched.
+	 */
+	@Label("Depth")
+	byte depth;
+	/**
+	 * Nodes visited, by all threads.
+	 */
+	@Label("Nodes")
+	long nodes;
+	/**
+	 * Index of the cell of the move chosen.
+	 */
+	@Label("Move")
+	byte move;
+	/**
+	 * Score of the move chosen.
+	 */
+	@Label("Score")
+	long score;
+}
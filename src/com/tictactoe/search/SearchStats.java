@@ -0,0 +1,396 @@
+/*
+ * This file is part of KenTacToe, (c) Kenshin Himura, 2013.
+ *
+ * KenTacToe is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KenTacToe is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KenTacToe.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.tictactoe.search;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * The <code>SearchStats</code> class holds how much work a search did: the
+ * nodes it visited, the leaves it evaluated, the cut-offs it made (and how many
+ * of them the first move searched made, which tells how good the move ordering
+ * is), the transposition table probes and hits, the time it took and the
+ * memory it allocated, in total and for every iteration (depth) searched.
+ * The search counts into plain fields of its own stats object, one per thread,
+ * which are added up at the end of every iteration, so keeping the statistics
+ * costs next to nothing and they are always kept.
+ * The statistics of a search are read once the search has returned; they are
+ * cleared when the next search starts.
+ * @author Kenshin Himura
+ *
+ */
+public class SearchStats
+{
+	/**
+	 * Used to measure the memory allocated by the thread of a search.
+	 */
+	private static final ThreadMXBean THREADS=ManagementFactory.getThreadMXBean();
+	/**
+	 * Leaves evaluated in the current iteration (by this thread).
+	 */
+	long leaves;
+	/**
+	 * Cut-offs made in the current iteration (by this thread).
+	 */
+	long cutOffs;
+	/**
+	 * Cut-offs made by the first move searched, in the current iteration (by this thread).
+	 */
+	long firstMoveCutOffs;
+	/**
+	 * Transposition table probes in the current iteration (by this thread).
+	 */
+	long probes;
+	/**
+	 * Transposition table probes which found their position, in the current
+	 * iteration (by this thread).
+	 */
+	long hits;
+	/**
+	 * Nodes of every depth searched.
+	 */
+	private long depthNodes[]=new long[0];
+	/**
+	 * Leaves of every depth searched.
+	 */
+	private long depthLeaves[]=new long[0];
+	/**
+	 * Cut-offs of every depth searched.
+	 */
+	private long depthCutOffs[]=new long[0];
+	/**
+	 * First move cut-offs of every depth searched.
+	 */
+	private long depthFirstMoveCutOffs[]=new long[0];
+	/**
+	 * Transposition table probes of every depth searched.
+	 */
+	private long depthProbes[]=new long[0];
+	/**
+	 * Transposition table hits of every depth searched.
+	 */
+	private long depthHits[]=new long[0];
+	/**
+	 * Time every depth took, in nanoseconds.
+	 */
+	private long depthTimes[]=new long[0];
+	/**
+	 * Deepest depth searched (completely or not), -1 if none.
+	 */
+	private int deepestDepth=-1;
+	/**
+	 * Nodes of the search when the current iteration began.
+	 */
+	private long iterationNodes;
+	/**
+	 * Time (as of <code>System.nanoTime()</code>) the search began.
+	 */
+	private long startTime;
+	/**
+	 * Time (as of <code>System.nanoTime()</code>) the current iteration began.
+	 */
+	private long iterationTime;
+	/**
+	 * Time the whole search took, in nanoseconds.
+	 */
+	private long elapsedTime;
+	/**
+	 * Bytes allocated by the thread of the search before it began, -1 if not measurable.
+	 */
+	private long startAllocated=-1;
+	/**
+	 * Bytes allocated by the thread of the search while it ran, -1 if not measurable.
+	 */
+	private long allocatedBytes=-1;
+	/**
+	 * This method clears the statistics, as a search begins.
+	 * @param maxDepth Deepest depth the search may search
+	 */
+	void start(int maxDepth)
+	{
+		if(depthNodes.length<=maxDepth)
+		{
+			depthNodes=new long[maxDepth+1];
+			depthLeaves=new long[maxDepth+1];
+			depthCutOffs=new long[maxDepth+1];
+			depthFirstMoveCutOffs=new long[maxDepth+1];
+			depthProbes=new long[maxDepth+1];
+			depthHits=new long[maxDepth+1];
+			depthTimes=new long[maxDepth+1];
+		}
+		for(int i=0;i<=deepestDepth;i++)
+			depthNodes[i]=depthLeaves[i]=depthCutOffs[i]=depthFirstMoveCutOffs[i]=depthProbes[i]=depthHits[i]=depthTimes[i]=0;
+		clearCounters();
+		deepestDepth=-1;
+		iterationNodes=0;
+		elapsedTime=0;
+		allocatedBytes=-1;
+		startAllocated=allocated();
+		startTime=System.nanoTime();
+		iterationTime=startTime;
+	}
+	/**
+	 * This method clears the counters of the current iteration.
+	 */
+	void clearCounters()
+	{
+		leaves=cutOffs=firstMoveCutOffs=probes=hits=0;
+	}
+	/**
+	 * This method adds the counters of a worker (or helper) to those of this
+	 * search, and clears the worker's.
+	 * @param worker Statistics of the worker
+	 */
+	void add(SearchStats worker)
+	{
+		leaves+=worker.leaves;
+		cutOffs+=worker.cutOffs;
+		firstMoveCutOffs+=worker.firstMoveCutOffs;
+		probes+=worker.probes;
+		hits+=worker.hits;
+		worker.clearCounters();
+	}
+	/**
+	 * This method books the counters of the current iteration to its depth,
+	 * as the iteration ends (completed or stopped).
+	 * @param depth Depth of the iteration
+	 * @param nodes Nodes of the search so far
+	 */
+	void endIteration(int depth, long nodes)
+	{
+		long now=System.nanoTime();
+		depthNodes[depth]+=nodes-iterationNodes;
+		depthLeaves[depth]+=leaves;
+		depthCutOffs[depth]+=cutOffs;
+		depthFirstMoveCutOffs[depth]+=firstMoveCutOffs;
+		depthProbes[depth]+=probes;
+		depthHits[depth]+=hits;
+		depthTimes[depth]+=now-iterationTime;
+		deepestDepth=Math.max(deepestDepth,depth);
+		clearCounters();
+		iterationNodes=nodes;
+		iterationTime=now;
+	}
+	/**
+	 * This method ends the statistics of a search. Whatever was counted after
+	 * the last iteration ended (eg, by the helpers of a Lazy SMP search) is
+	 * booked to the deepest depth searched.
+	 * @param nodes Nodes of the whole search
+	 */
+	void finish(long nodes)
+	{
+		if((nodes>iterationNodes)||(leaves>0)||(probes>0))
+			endIteration(Math.max(0,deepestDepth),nodes);
+		elapsedTime=System.nanoTime()-startTime;
+		long allocated=allocated();
+		if((startAllocated>=0)&&(allocated>=0))
+			allocatedBytes=allocated-startAllocated;
+	}
+	/**
+	 * This method measures the bytes allocated by the current thread so far.
+	 * @return Bytes allocated, -1 if not measurable on this JVM
+	 */
+	private static long allocated()
+	{
+		if(THREADS instanceof com.sun.management.ThreadMXBean)
+		{
+			com.sun.management.ThreadMXBean threads=(com.sun.management.ThreadMXBean)THREADS;
+			if(threads.isThreadAllocatedMemorySupported()&&threads.isThreadAllocatedMemoryEnabled())
+				return threads.getCurrentThreadAllocatedBytes();
+		}
+		return -1;
+	}
+	/**
+	 * This method adds up one statistic over all depths.
+	 */
+	private long total(long perDepth[])
+	{
+		long total=0;
+		for(int i=0;i<=deepestDepth;i++)
+			total+=perDepth[i];
+		return total;
+	}
+	/**
+	 * Generic getter method to get the deepest depth searched.
+	 * @return Deepest depth searched (completely or not), -1 if none
+	 */
+	public int getDeepestDepth()
+	{
+		return deepestDepth;
+	}
+	/**
+	 * Generic getter method to get the nodes visited.
+	 * @return Nodes visited by all threads
+	 */
+	public long getNodes()
+	{
+		return total(depthNodes);
+	}
+	/**
+	 * Generic getter method to get the nodes visited at a depth.
+	 * @param depth The depth
+	 * @return Nodes visited by all threads while searching to that depth
+	 */
+	public long getNodes(int depth)
+	{
+		return depthNodes[depth];
+	}
+	/**
+	 * Generic getter method to get the leaves evaluated.
+	 * @return Leaves evaluated by all threads
+	 */
+	public long getLeaves()
+	{
+		return total(depthLeaves);
+	}
+	/**
+	 * Generic getter method to get the leaves evaluated at a depth.
+	 * @param depth The depth
+	 * @return Leaves evaluated by all threads while searching to that depth
+	 */
+	public long getLeaves(int depth)
+	{
+		return depthLeaves[depth];
+	}
+	/**
+	 * Generic getter method to get the cut-offs made.
+	 * @return Cut-offs made by all threads
+	 */
+	public long getCutOffs()
+	{
+		return total(depthCutOffs);
+	}
+	/**
+	 * Generic getter method to get the cut-offs made at a depth.
+	 * @param depth The depth
+	 * @return Cut-offs made by all threads while searching to that depth
+	 */
+	public long getCutOffs(int depth)
+	{
+		return depthCutOffs[depth];
+	}
+	/**
+	 * This method gives the share of the cut-offs made by the first move
+	 * searched. The closer to 1, the better the moves are ordered.
+	 * @return First move cut-offs over all cut-offs, 0 if none
+	 */
+	public double getFirstMoveCutOffRate()
+	{
+		long cutOffs=getCutOffs();
+		return (cutOffs==0)?0:(double)total(depthFirstMoveCutOffs)/cutOffs;
+	}
+	/**
+	 * This method gives the share of the cut-offs made by the first move
+	 * searched, at a depth.
+	 * @param depth The depth
+	 * @return First move cut-offs over all cut-offs at that depth, 0 if none
+	 */
+	public double getFirstMoveCutOffRate(int depth)
+	{
+		return (depthCutOffs[depth]==0)?0:(double)depthFirstMoveCutOffs[depth]/depthCutOffs[depth];
+	}
+	/**
+	 * Generic getter method to get the transposition table probes.
+	 * @return Probes of all threads
+	 */
+	public long getProbes()
+	{
+		return total(depthProbes);
+	}
+	/**
+	 * Generic getter method to get the transposition table hits.
+	 * @return Probes of all threads which found their position
+	 */
+	public long getHits()
+	{
+		return total(depthHits);
+	}
+	/**
+	 * This method gives the share of the transposition table probes which found
+	 * their position.
+	 * @return Hits over probes, 0 if none
+	 */
+	public double getHitRate()
+	{
+		long probes=getProbes();
+		return (probes==0)?0:(double)getHits()/probes;
+	}
+	/**
+	 * This method gives the share of the transposition table probes which found
+	 * their position, at a depth.
+	 * @param depth The depth
+	 * @return Hits over probes at that depth, 0 if none
+	 */
+	public double getHitRate(int depth)
+	{
+		return (depthProbes[depth]==0)?0:(double)depthHits[depth]/depthProbes[depth];
+	}
+	/**
+	 * Generic getter method to get the time the search took.
+	 * @return Time of the whole search, in nanoseconds
+	 */
+	public long getElapsedTime()
+	{
+		return elapsedTime;
+	}
+	/**
+	 * Generic getter method to get the time a depth took.
+	 * @param depth The depth
+	 * @return Time of the iteration of that depth, in nanoseconds
+	 */
+	public long getElapsedTime(int depth)
+	{
+		return depthTimes[depth];
+	}
+	/**
+	 * This method gives the speed of the search.
+	 * @return Nodes per second, of all threads together
+	 */
+	public long getNodesPerSecond()
+	{
+		return (elapsedTime<=0)?0:(long)(getNodes()*1e9/elapsedTime);
+	}
+	/**
+	 * Generic getter method to get the memory allocated by the search. Only the
+	 * thread which called the search is measured, not those of a parallel search.
+	 * @return Bytes allocated, -1 if not measurable on this JVM
+	 */
+	public long getAllocatedBytes()
+	{
+		return allocatedBytes;
+	}
+	/**
+	 * This method writes the statistics, in total and for every depth.
+	 * @return One line for the whole search, and one more for every depth searched
+	 */
+	@Override
+	public String toString()
+	{
+		StringBuilder text=new StringBuilder();
+		text.append(String.format("nodes %d nps %d leaves %d cutoffs %d first %.3f probes %d hits %.3f time %.3fms allocated %d",
+				getNodes(),getNodesPerSecond(),getLeaves(),getCutOffs(),getFirstMoveCutOffRate(),getProbes(),getHitRate(),
+				elapsedTime/1e6,allocatedBytes));
+		for(int i=0;i<=deepestDepth;i++)
+			if(depthNodes[i]>0)
+				text.append(String.format("%n depth %d nodes %d leaves %d cutoffs %d first %.3f probes %d hits %.3f time %.3fms",
+						i,depthNodes[i],depthLeaves[i],depthCutOffs[i],getFirstMoveCutOffRate(i),depthProbes[i],getHitRate(i),
+						depthTimes[i]/1e6));
+		return text.toString();
+	}
+}
@@ -0,0 +1,192 @@
+/*
+ * This file is part of KenTacToe, (c) Kenshin Himura, 2013.
+ *
+ * KenTacToe is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KenTacToe is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KenTacToe.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.tictactoe.search;
+
+import com.tictactoe.table.Table;
+
+/**
+ * The <code>ThreatSearch</code> class looks for wins by a sequence of threats:
+ * moves after which the side to move could win with one more sign, so that
+ * the other side has to sign that very cell, until a move makes two such
+ * cells at once (or the other side's forced replies leave one open).
+ * Only these forcing moves are tried, each with the one reply it forces, so
+ * wins far deeper than the full-width search could see are found by looking
+ * at a few positions. A threat is made by signing an empty cell of a line
+ * missing two signs (and without a single sign of the other side); if the
+ * other side has a threat of its own, the only move tried is the one
+ * blocking it, and if it has two, there is no win to be found.
+ * A win found is a real one, whatever the other side plays; a position in
+ * which none is found may still be won by quieter moves.
+ * @author Kenshin Himura
+ *
+ */
+public class ThreatSearch
+{
+	/**
+	 * Default number of threats of the longest sequence looked for.
+	 */
+	public static final int DEFAULT_THREATS=8;
+	/**
+	 * Default number of positions looked at before a search gives up.
+	 */
+	public static final long DEFAULT_MAX_NODES=1<<16;
+	/**
+	 * Number of threats of the longest sequence looked for.
+	 */
+	private int maxThreats=DEFAULT_THREATS;
+	/**
+	 * Number of positions looked at before a search gives up.
+	 */
+	private long maxNodes=DEFAULT_MAX_NODES;
+	/**
+	 * The table searched, a copy of the position.
+	 */
+	private Table table;
+	/**
+	 * Moves to be tried, for every number of threats left.
+	 */
+	private byte moveBuffer[][];
+	/**
+	 * Cells the side to move could win by signing, after a threat.
+	 */
+	private byte threatCells[];
+	/**
+	 * Number of positions looked at by the last search.
+	 */
+	private long nodes;
+	/**
+	 * First move of the win found, set as the search unwinds.
+	 */
+	private byte winningMove;
+	/**
+	 * Default constructor of <code>ThreatSearch</code>.
+	 */
+	public ThreatSearch()
+	{
+
+	}
+	/**
+	 * This method looks for a win by a sequence of threats.
+	 * @param position The position, not changed by the search
+	 * @param sign Sign of the side to move, 'X' or 'O'
+	 * @return Index of the cell of the first move of the win, or -1 if none was found
+	 */
+	public byte findWin(Table position, char sign)
+	{
+		nodes=0;
+		if((position.isComplete()!=-1)||(position.getNoOfDs()==0))
+			return -1;
+		table=position.clone();
+		if((moveBuffer==null)||(moveBuffer.length!=maxThreats+1)||(threatCells.length!=table.getSizeOfTable()))
+		{
+			moveBuffer=new byte[maxThreats+1][table.getSizeOfTable()];
+			threatCells=new byte[table.getSizeOfTable()];
+		}
+		char other=(sign=='X')?'O':'X';
+		return wins(sign,other,maxThreats)?winningMove:-1;
+	}
+	/**
+	 * This method tells whether the attacker, to move, wins by a sequence of
+	 * threats, and if so sets <code>winningMove</code> to its first move.
+	 * @param attacker Sign of the side looking for a win
+	 * @param defender Sign of the other side
+	 * @param threatsLeft Number of threats the attacker may still make
+	 * @return <code>true</code> if a win was found, <code>false</code> otherwise
+	 */
+	private boolean wins(char attacker, char defender, int threatsLeft)
+	{
+		nodes++;
+		byte moves[]=moveBuffer[threatsLeft];
+		if(table.getOpenCells(attacker,1,moves)>0)
+		{
+			winningMove=moves[0];
+			return true;
+		}
+		if((threatsLeft==0)||(nodes>=maxNodes))
+			return false;
+		//a threat of the defender has to be blocked first, two cannot be
+		int noOfMoves=table.getOpenCells(defender,1,moves);
+		if(noOfMoves>1)
+			return false;
+		if(noOfMoves==0)
+			noOfMoves=table.getOpenCells(attacker,2,moves);
+		for(int i=0;i<noOfMoves;i++)
+		{
+			byte move=moves[i];
+			table.makeMove(move,attacker);
+			int noOfThreats=table.getOpenCells(attacker,1,threatCells);
+			//two threats at once cannot both be blocked
+			boolean won=(noOfThreats>1);
+			if(noOfThreats==1)
+			{
+				byte reply=threatCells[0];
+				table.makeMove(reply,defender);
+				won=wins(attacker,defender,threatsLeft-1);
+				table.unMakeMove(reply);
+			}
+			table.unMakeMove(move);
+			if(won)
+			{
+				winningMove=move;
+				return true;
+			}
+		}
+		return false;
+	}
+	/**
+	 * Generic getter method to get the length of the sequences looked for.
+	 * @return Number of threats of the longest sequence looked for
+	 */
+	public int getMaxThreats()
+	{
+		return maxThreats;
+	}
+	/**
+	 * Generic setter method to set the length of the sequences looked for.
+	 * @param maxThreats Number of threats of the longest sequence looked for
+	 */
+	public void setMaxThreats(int maxThreats)
+	{
+		this.maxThreats = maxThreats;
+	}
+	/**
+	 * Generic getter method to get the most positions a search looks at.
+	 * @return Number of positions looked at before a search gives up
+	 */
+	public long getMaxNodes()
+	{
+		return maxNodes;
+	}
+	/**
+	 * Generic setter method to set the most positions a search looks at.
+	 * @param maxNodes Number of positions looked at before a search gives up
+	 */
+	public void setMaxNodes(long maxNodes)
+	{
+		this.maxNodes = maxNodes;
+	}
+	/**
+	 * Generic getter method to get the number of positions looked at by the last search.
+	 * @return Number of positions looked at
+	 */
+	public long getNodes()
+	{
+		return nodes;
+	}
+}
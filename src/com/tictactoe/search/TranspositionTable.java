@@ -0,0 +1,213 @@
+/*
+ * This file is part of KenTacToe, (c) Kenshin Himura, 2013.
+ *
+ * KenTacToe is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KenTacToe is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KenTacToe.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.tictactoe.search;
+
+import java.util.Arrays;
+
+/**
+ * The <code>TranspositionTable</code> class remembers the results of positions
+ * already searched, so that a position reached again through a different order
+ * of the same moves (a transposition) need not be searched again.
+ * It is a fixed-size hash table of entries holding the depth searched, the type
+ * of bound, the score and the best move found. Entries are kept in buckets of
+ * two: the first one is replaced only by deeper (or equally deep) searches or
+ * by entries of a newer search, the second one is always replaced.
+ * Everything is kept in a single <code>long</code> array of three words per
+ * entry, so that probing allocates nothing.
+ * The table may be shared by several threads searching at once, without any
+ * locking. The first word of an entry is not the key itself but the key XORed
+ * with the other two words, so an entry which one thread read while another
+ * was writing it (with words of both the old and the new entry) does not match
+ * its key any more, and is taken as a miss.
+ * @author Kenshin Himura
+ *
+ */
+public class TranspositionTable
+{
+	/**
+	 * Bound type of an entry whose score is exact.
+	 */
+	public static final byte EXACT=0;
+	/**
+	 * Bound type of an entry whose score is a lower bound (the search failed high).
+	 */
+	public static final byte LOWER_BOUND=1;
+	/**
+	 * Bound type of an entry whose score is an upper bound (the search failed low).
+	 */
+	public static final byte UPPER_BOUND=2;
+	/**
+	 * Default number of entries of a transposition table.
+	 */
+	public static final int DEFAULT_SIZE=1<<16;
+	/**
+	 * Number of words of an entry: the check word (the key XOR the other two),
+	 * the score and the packed depth, bound, best move and generation.
+	 */
+	private static final int ENTRY_WORDS=3;
+	/**
+	 * Holds the entries, <code>ENTRY_WORDS</code> words per entry.
+	 */
+	private long entries[];
+	/**
+	 * Mask to turn a hash into a bucket index (number of buckets - 1).
+	 */
+	private int bucketMask;
+	/**
+	 * Generation of the current search, used to age out old entries.
+	 */
+	private int generation;
+	/**
+	 * Constructor of the <code>TranspositionTable</code> class.
+	 * @param size Number of entries, rounded down to a power of two (at least two).
+	 */
+	public TranspositionTable(int size)
+	{
+		int buckets=Integer.highestOneBit(Math.max(2,size))>>>1;
+		entries=new long[buckets*2*ENTRY_WORDS];
+		bucketMask=buckets-1;
+	}
+	/**
+	 * Default constructor of the <code>TranspositionTable</code> class.
+	 * Creates a table of <code>DEFAULT_SIZE</code> entries.
+	 */
+	public TranspositionTable()
+	{
+		this(DEFAULT_SIZE);
+	}
+	/**
+	 * This method is used to find the first word of the first entry of the
+	 * bucket of a hash.
+	 */
+	private int bucketOf(long key)
+	{
+		return (((int)(key^(key>>>32)))&bucketMask)*2*ENTRY_WORDS;
+	}
+	/**
+	 * This method is used to look up a position. The entry found is copied
+	 * into the array given, so that it can be read with the getters even if
+	 * another thread replaces it in the meantime.
+	 * @param key Hash of the position
+	 * @param entry Array of (at least) two words, in which the entry is copied
+	 * @return <code>true</code> if the position is in the table, <code>false</code> otherwise
+	 */
+	public boolean probe(long key, long entry[])
+	{
+		int slot=bucketOf(key);
+		for(int i=0;i<2;i++,slot+=ENTRY_WORDS)
+		{
+			long score=entries[slot+1];
+			long info=entries[slot+2];
+			if((info!=0)&&((entries[slot]^score^info)==key))
+			{
+				entry[0]=score;
+				entry[1]=info;
+				return true;
+			}
+		}
+		return false;
+	}
+	/**
+	 * This method is used to store the result of a search of a position.
+	 * @param key Hash of the position
+	 * @param depth Depth to which the position was searched
+	 * @param bound Type of bound of the score (<code>EXACT</code>,
+	 * <code>LOWER_BOUND</code> or <code>UPPER_BOUND</code>)
+	 * @param score Score of the position
+	 * @param bestMove Index of the cell of the best move found, -1 if none
+	 */
+	public void store(long key, byte depth, byte bound, long score, byte bestMove)
+	{
+		int slot=bucketOf(key);
+		long info=entries[slot+2];
+		long storedKey=entries[slot]^entries[slot+1]^info;
+		if((storedKey!=key)&&(info!=0)&&(generationOf(info)==(generation&0xFF))&&(depth<depthOf(info)))
+			slot+=ENTRY_WORDS;
+		info=1L|((long)(depth&0xFF)<<1)|((long)bound<<9)|((long)(bestMove&0xFF)<<11)|((long)(generation&0xFF)<<19);
+		entries[slot]=key^score^info;
+		entries[slot+1]=score;
+		entries[slot+2]=info;
+	}
+	/**
+	 * This method is used to get the depth of an entry.
+	 * @param entry Entry copied by <code>probe()</code>
+	 * @return Depth to which the position was searched
+	 */
+	public static byte getDepth(long entry[])
+	{
+		return depthOf(entry[1]);
+	}
+	/**
+	 * This method is used to get the bound type of an entry.
+	 * @param entry Entry copied by <code>probe()</code>
+	 * @return <code>EXACT</code>, <code>LOWER_BOUND</code> or <code>UPPER_BOUND</code>
+	 */
+	public static byte getBound(long entry[])
+	{
+		return (byte)((entry[1]>>>9)&3);
+	}
+	/**
+	 * This method is used to get the score of an entry.
+	 * @param entry Entry copied by <code>probe()</code>
+	 * @return Score of the position
+	 */
+	public static long getScore(long entry[])
+	{
+		return entry[0];
+	}
+	/**
+	 * This method is used to get the best move of an entry.
+	 * @param entry Entry copied by <code>probe()</code>
+	 * @return Index of the cell of the best move, -1 if none
+	 */
+	public static byte getBestMove(long entry[])
+	{
+		return (byte)(entry[1]>>>11);
+	}
+	/**
+	 * This method is to be called at the start of every new search, so that
+	 * entries of older searches are replaced first.
+	 */
+	public void newSearch()
+	{
+		generation++;
+	}
+	/**
+	 * This method is used to empty the table.
+	 */
+	public void clear()
+	{
+		Arrays.fill(entries,0);
+		generation=0;
+	}
+	/**
+	 * Unpacks the depth from the packed info word of an entry.
+	 */
+	private static byte depthOf(long info)
+	{
+		return (byte)(info>>>1);
+	}
+	/**
+	 * Unpacks the generation from the packed info word of an entry.
+	 */
+	private static int generationOf(long info)
+	{
+		return (int)((info>>>19)&0xFF);
+	}
+}
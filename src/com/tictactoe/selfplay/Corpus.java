@@ -0,0 +1,127 @@
+/*
+ * This file is part of KenTacToe, (c) Kenshin Himura, 2013.
+ *
+ * KenTacToe is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KenTacToe is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KenTacToe.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.tictactoe.selfplay;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The <code>Corpus</code> class reads and writes files of games. A corpus
+ * starts with the magic number <code>MAGIC</code> and the byte
+ * <code>VERSION</code>, and goes on with chunks up to its end. A chunk is the
+ * number of games in it and its length in bytes, both as ints, followed by the
+ * records of its games (see <code>GameRecord</code>).
+ * As every chunk carries its own length, chunks written by different threads
+ * can be appended in any order, and a reader can skip the chunks it does not
+ * want without reading their games.
+ * @author Kenshin Himura
+ *
+ */
+public class Corpus
+{
+	/**
+	 * The magic number a corpus starts with, "KTTC" in ASCII.
+	 */
+	public static final int MAGIC=0x4B545443;
+	/**
+	 * Version of the format of the corpus.
+	 */
+	public static final byte VERSION=1;
+	/**
+	 * No use in constructing a corpus, all its methods are static.
+	 */
+	private Corpus()
+	{
+
+	}
+	/**
+	 * This method writes the header of a corpus.
+	 * @param out Where the corpus is written
+	 * @throws IOException If the header cannot be written
+	 */
+	public static void writeHeader(DataOutputStream out) throws IOException
+	{
+		out.writeInt(MAGIC);
+		out.writeByte(VERSION);
+	}
+	/**
+	 * This method writes a chunk of games.
+	 * @param out Where the corpus is written
+	 * @param games Number of games in the chunk
+	 * @param records The records of the games, one after the other
+	 * @param length Number of bytes of the records
+	 * @throws IOException If the chunk cannot be written
+	 */
+	public static void writeChunk(DataOutputStream out, int games, byte records[], int length) throws IOException
+	{
+		out.writeInt(games);
+		out.writeInt(length);
+		out.write(records,0,length);
+	}
+	/**
+	 * This method reads and checks the header of a corpus.
+	 * @param in Where the corpus is read from
+	 * @throws IOException If the header cannot be read, or is not that of a corpus
+	 */
+	public static void readHeader(DataInputStream in) throws IOException
+	{
+		if(in.readInt()!=MAGIC)
+			throw new IOException("Not a corpus of games");
+		byte version=in.readByte();
+		if(version!=VERSION)
+			throw new IOException("Unknown version of corpus: "+version);
+	}
+	/**
+	 * This method reads the next chunk of a corpus. A corpus ending between
+	 * two chunks ends there; one ending inside a chunk (as one whose writer
+	 * was killed may) is truncated, and that chunk is lost.
+	 * @param in Where the corpus is read from, after its header
+	 * @return The games of the chunk, or <code>null</code> at the end of the corpus
+	 * @throws IOException If the chunk cannot be read, is truncated or is corrupt
+	 */
+	public static List<GameRecord> readChunk(DataInputStream in) throws IOException
+	{
+		int first=in.read();
+		if(first<0)
+			return null;
+		try
+		{
+			int games=(first<<24)|(in.readUnsignedByte()<<16)|(in.readUnsignedShort());
+			int length=in.readInt();
+			if((games<0)||(length<0))
+				throw new IOException("Corrupt chunk: "+games+" games in "+length+" bytes");
+			byte records[]=new byte[length];
+			in.readFully(records);
+			DataInputStream chunk=new DataInputStream(new ByteArrayInputStream(records));
+			List<GameRecord> list=new ArrayList<GameRecord>(games);
+			for(int i=0;i<games;i++)
+				list.add(GameRecord.read(chunk));
+			return list;
+		}
+		catch(EOFException e)
+		{
+			throw new IOException("Truncated chunk",e);
+		}
+	}
+}
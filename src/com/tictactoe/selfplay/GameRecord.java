@@ -0,0 +1,165 @@
+/*
+ * This file is part of KenTacToe, (c) Kenshin Himura, 2013.
+ *
+ * KenTacToe is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KenTacToe is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KenTacToe.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.tictactoe.selfplay;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The <code>GameRecord</code> class holds one game of a corpus: the number of
+ * rows (and columns) of its table, its moves, X first, its result and, if they
+ * were kept, the score the search gave every move.
+ * A record is written as a byte for the side, a byte of flags, a byte for the
+ * number of moves, a byte for the index of the cell of every move and a byte
+ * for the result, followed (if the flag <code>SCORES</code> is set) by the
+ * score of every move as a variable-length zig-zag integer, so that the small
+ * scores of quiet moves take only a byte or two.
+ * @author Kenshin Himura
+ *
+ */
+public class GameRecord
+{
+	/**
+	 * Flag set if the scores of the moves are written.
+	 */
+	public static final byte SCORES=1;
+	/**
+	 * Number of rows (and columns) of the table.
+	 */
+	private final byte side;
+	/**
+	 * Indices of the cells of the moves, X first.
+	 */
+	private final byte moves[];
+	/**
+	 * 1 if X won, 0 if O won, -1 if the game was drawn.
+	 */
+	private final byte result;
+	/**
+	 * Score of every move as given by the search, <code>null</code> if not kept.
+	 */
+	private final long scores[];
+	/**
+	 * Constructor of the <code>GameRecord</code> class.
+	 * @param side Number of rows (and columns) of the table
+	 * @param moves Indices of the cells of the moves, X first
+	 * @param result 1 if X won, 0 if O won, -1 if the game was drawn
+	 * @param scores Score of every move, or <code>null</code> if not kept
+	 */
+	public GameRecord(byte side, byte moves[], byte result, long scores[])
+	{
+		if((scores!=null)&&(scores.length!=moves.length))
+			throw new IllegalArgumentException("One score per move is needed");
+		this.side=side;
+		this.moves=moves;
+		this.result=result;
+		this.scores=scores;
+	}
+	/**
+	 * This method writes the record.
+	 * @param out Where the record is written
+	 * @throws IOException If the record cannot be written
+	 */
+	public void write(DataOutput out) throws IOException
+	{
+		out.writeByte(side);
+		out.writeByte((scores!=null)?SCORES:0);
+		out.writeByte(moves.length);
+		out.write(moves);
+		out.writeByte(result);
+		if(scores!=null)
+			for(long score:scores)
+			{
+				long zigZag=(score<<1)^(score>>63);
+				while((zigZag&~0x7FL)!=0)
+				{
+					out.writeByte((int)((zigZag&0x7F)|0x80));
+					zigZag>>>=7;
+				}
+				out.writeByte((int)zigZag);
+			}
+	}
+	/**
+	 * This method reads a record written by <code>write()</code>.
+	 * @param in Where the record is read from
+	 * @return The record read
+	 * @throws IOException If the record cannot be read
+	 */
+	public static GameRecord read(DataInput in) throws IOException
+	{
+		byte side=in.readByte();
+		byte flags=in.readByte();
+		byte moves[]=new byte[in.readUnsignedByte()];
+		in.readFully(moves);
+		byte result=in.readByte();
+		long scores[]=null;
+		if((flags&SCORES)!=0)
+		{
+			scores=new long[moves.length];
+			for(int i=0;i<scores.length;i++)
+			{
+				long zigZag=0;
+				int shift=0;
+				byte b;
+				do
+				{
+					b=in.readByte();
+					zigZag|=(long)(b&0x7F)<<shift;
+					shift+=7;
+				}
+				while(b<0);
+				scores[i]=(zigZag>>>1)^-(zigZag&1);
+			}
+		}
+		return new GameRecord(side,moves,result,scores);
+	}
+	/**
+	 * Generic getter method to get the side of the table of the game.
+	 * @return Number of rows (and columns) of the table
+	 */
+	public byte getSide()
+	{
+		return side;
+	}
+	/**
+	 * Generic getter method to get the moves of the game.
+	 * @return Indices of the cells of the moves, X first
+	 */
+	public byte[] getMoves()
+	{
+		return moves;
+	}
+	/**
+	 * Generic getter method to get the result of the game.
+	 * @return 1 if X won, 0 if O won, -1 if the game was drawn
+	 */
+	public byte getResult()
+	{
+		return result;
+	}
+	/**
+	 * Generic getter method to get the scores of the moves of the game.
+	 * @return Score of every move, or <code>null</code> if not kept
+	 */
+	public long[] getScores()
+	{
+		return scores;
+	}
+}
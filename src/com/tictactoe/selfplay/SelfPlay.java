@@ -0,0 +1,507 @@
+/*
+ * This file is part of KenTacToe, (c) Kenshin Himura, 2013.
+ *
+ * KenTacToe is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KenTacToe is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KenTacToe.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.tictactoe.selfplay;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.tictactoe.game.GameSession;
+import com.tictactoe.player.Player;
+import com.tictactoe.search.Search;
+import com.tictactoe.table.Table;
+
+/**
+ * The <code>SelfPlay</code> class plays the AI against itself, many games at
+ * once, and writes the games to a corpus (see <code>Corpus</code>).
+ * Every worker plays whole games one after the other with a search of its own,
+ * which keeps its tables from one game to the next, and collects its games into
+ * a chunk of its own, so the workers only meet to take the number of the next
+ * game and to append a full chunk to the corpus. The games are thus written in
+ * no particular order.
+ * The first moves of every game may be played at random, so that the games do
+ * not all repeat the same opening. The random moves of a game depend only on
+ * the seed and the number of the game, not on the worker which plays it.
+ * @author Kenshin Himura
+ *
+ */
+public class SelfPlay
+{
+	/**
+	 * Time a move is allowed to take when neither a depth nor a time limit is
+	 * given, in milliseconds (see <code>Search.setLatencyTarget()</code>).
+	 */
+	public static final float DEFAULT_LATENCY_TARGET=10;
+	/**
+	 * Default number of games in a chunk.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE=1024;
+	/**
+	 * Time between two reports of the progress, in milliseconds.
+	 */
+	private static final long REPORT_INTERVAL=1000;
+	/**
+	 * The player who signs as X in every game.
+	 */
+	private static final Player PLAYER_X=new Player('X');
+	/**
+	 * The player who signs as O in every game.
+	 */
+	private static final Player PLAYER_O=new Player('O');
+	/**
+	 * Number of games to play.
+	 */
+	private long games=1000;
+	/**
+	 * Number of rows (and columns) of the table.
+	 */
+	private byte side=3;
+	/**
+	 * Fixed search depth, or -1 to let the search choose its depth.
+	 */
+	private byte searchDepth=-1;
+	/**
+	 * Time limit of every move in milliseconds, 0 for none.
+	 */
+	private float time;
+	/**
+	 * Number of moves played at random at the start of every game.
+	 */
+	private int randomPlies;
+	/**
+	 * If the score of every move is written with the game.
+	 */
+	private boolean scores;
+	/**
+	 * Number of workers playing games at once.
+	 */
+	private int workers=Runtime.getRuntime().availableProcessors();
+	/**
+	 * Number of games a worker collects before appending them to the corpus.
+	 */
+	private int chunkSize=DEFAULT_CHUNK_SIZE;
+	/**
+	 * Seed of the random moves.
+	 */
+	private long seed=System.nanoTime();
+	/**
+	 * Number of the next game to be played.
+	 */
+	private final AtomicLong nextGame=new AtomicLong();
+	/**
+	 * Number of games played.
+	 */
+	private final AtomicLong gamesPlayed=new AtomicLong();
+	/**
+	 * Number of games won by X.
+	 */
+	private final AtomicLong xWins=new AtomicLong();
+	/**
+	 * Number of games won by O.
+	 */
+	private final AtomicLong oWins=new AtomicLong();
+	/**
+	 * Default constructor of the <code>SelfPlay</code> class.
+	 */
+	public SelfPlay()
+	{
+
+	}
+	/**
+	 * This method plays all the games and writes them to a corpus. The
+	 * progress is reported every second.
+	 * @param out Where the corpus is written
+	 * @param report Where the progress is reported, <code>null</code> for nowhere
+	 * @throws IOException If the corpus cannot be written
+	 */
+	public void play(OutputStream out, PrintStream report) throws IOException
+	{
+		final DataOutputStream corpus=new DataOutputStream(new BufferedOutputStream(out,1<<16));
+		Corpus.writeHeader(corpus);
+		nextGame.set(0);
+		gamesPlayed.set(0);
+		xWins.set(0);
+		oWins.set(0);
+		long startTime=System.currentTimeMillis();
+		ExecutorService pool=Executors.newFixedThreadPool(workers);
+		List<Future<Void>> running=new ArrayList<Future<Void>>();
+		try
+		{
+			for(int i=0;i<workers;i++)
+				running.add(pool.submit(new Callable<Void>()
+				{
+					@Override
+					public Void call() throws IOException
+					{
+						work(corpus);
+						return null;
+					}
+				}));
+			pool.shutdown();
+			while(!pool.awaitTermination(REPORT_INTERVAL,TimeUnit.MILLISECONDS))
+				report(report,startTime);
+			for(Future<Void> worker:running)
+				worker.get();
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while playing",e);
+		}
+		catch(ExecutionException e)
+		{
+			if(e.getCause() instanceof IOException)
+				throw (IOException)e.getCause();
+			throw new IllegalStateException(e.getCause());
+		}
+		finally
+		{
+			pool.shutdownNow();
+			corpus.flush();
+		}
+		report(report,startTime);
+	}
+	/**
+	 * This method plays games until all of them have been taken, and appends
+	 * them to the corpus a chunk at a time.
+	 * @param corpus Where the chunks are appended
+	 * @throws IOException If a chunk cannot be written
+	 */
+	private void work(DataOutputStream corpus) throws IOException
+	{
+		Search search=new Search();
+		ByteArrayOutputStream chunk=new ByteArrayOutputStream();
+		DataOutputStream records=new DataOutputStream(chunk);
+		int inChunk=0;
+		try
+		{
+			long game;
+			while((game=nextGame.getAndIncrement())<games)
+			{
+				GameRecord record=playGame(search,game);
+				record.write(records);
+				inChunk++;
+				if(record.getResult()==1)
+					xWins.incrementAndGet();
+				else if(record.getResult()==0)
+					oWins.incrementAndGet();
+				gamesPlayed.incrementAndGet();
+				if(inChunk==chunkSize)
+				{
+					appendChunk(corpus,inChunk,chunk);
+					inChunk=0;
+				}
+			}
+			if(inChunk>0)
+				appendChunk(corpus,inChunk,chunk);
+		}
+		finally
+		{
+			search.shutdown();
+		}
+	}
+	/**
+	 * This method appends a chunk to the corpus, and empties it.
+	 */
+	private static void appendChunk(DataOutputStream corpus, int inChunk, ByteArrayOutputStream chunk) throws IOException
+	{
+		synchronized(corpus)
+		{
+			Corpus.writeChunk(corpus,inChunk,chunk.toByteArray(),chunk.size());
+		}
+		chunk.reset();
+	}
+	/**
+	 * This method plays one game.
+	 * @param search The search of the current worker
+	 * @param game Number of the game, which picks its random moves
+	 * @return The record of the game
+	 */
+	public GameRecord playGame(Search search, long game)
+	{
+		Random random=new Random(seed+game);
+		GameSession session=new GameSession(side,PLAYER_X,PLAYER_O);
+		byte moves[]=new byte[side*side];
+		long moveScores[]=new long[side*side];
+		int count=0;
+		while(!session.isOver())
+		{
+			Table table=session.getTable();
+			byte move;
+			long score=0;
+			if(count<randomPlies)
+			{
+				//the n-th empty cell, counted from the first
+				int empty=random.nextInt(table.getNoOfDs());
+				for(move=0;!table.isEmpty(move)||(empty-->0);move++)
+					;
+			}
+			else
+			{
+				search.setCurrentState(table);
+				search.setCurrentSearchState(table);
+				search.setCurrentPlayer(session.getCurrentPlayer());
+				byte depth=(byte)(table.getNoOfDs()-1);
+				if(searchDepth>=0)
+					depth=(byte)Math.min(depth,searchDepth);
+				search.setSearchDepth(depth);
+				//a fixed depth is searched as it is, not cut down to the latency target
+				search.setLatencyTarget((searchDepth>=0)?0:DEFAULT_LATENCY_TARGET);
+				search.setTime(time);
+				move=search.getBestMove().getIndex();
+				score=search.getBestScore();
+			}
+			session=session.play(move);
+			moves[count]=move;
+			moveScores[count]=score;
+			count++;
+		}
+		return new GameRecord(side,Arrays.copyOf(moves,count),session.getResult(),scores?Arrays.copyOf(moveScores,count):null);
+	}
+	/**
+	 * This method reports the progress of the games.
+	 */
+	private void report(PrintStream report, long startTime)
+	{
+		if(report==null)
+			return;
+		long played=gamesPlayed.get();
+		long x=xWins.get(), o=oWins.get();
+		double seconds=Math.max(1,System.currentTimeMillis()-startTime)/1000.0;
+		report.println(played+"/"+games+" games, X won "+x+", O won "+o+", drawn "+(played-x-o)+", "
+				+String.format("%.1f",played/seconds)+" games/s");
+	}
+	/**
+	 * Generic getter method to get the number of games played.
+	 * @return Number of games played by the last (or current) <code>play()</code>
+	 */
+	public long getGamesPlayed()
+	{
+		return gamesPlayed.get();
+	}
+	/**
+	 * Generic getter method to get the number of games to play.
+	 * @return Number of games to play
+	 */
+	public long getGames()
+	{
+		return games;
+	}
+	/**
+	 * Generic setter method to set the number of games to play.
+	 * @param games Number of games to play
+	 */
+	public void setGames(long games)
+	{
+		this.games = games;
+	}
+	/**
+	 * Generic getter method to get the side of the table.
+	 * @return Number of rows (and columns) of the table
+	 */
+	public byte getSide()
+	{
+		return side;
+	}
+	/**
+	 * Generic setter method to set the side of the table.
+	 * @param side Number of rows (and columns) of the table
+	 */
+	public void setSide(byte side)
+	{
+		this.side = side;
+	}
+	/**
+	 * Generic getter method to get the search depth.
+	 * @return Fixed search depth, or -1 if the search chooses its depth
+	 */
+	public byte getSearchDepth()
+	{
+		return searchDepth;
+	}
+	/**
+	 * Generic setter method to set the search depth.
+	 * @param searchDepth Fixed search depth, or -1 to let the search choose its depth
+	 */
+	public void setSearchDepth(byte searchDepth)
+	{
+		this.searchDepth = searchDepth;
+	}
+	/**
+	 * Generic getter method to get the time limit of every move.
+	 * @return Time limit of every move in milliseconds, 0 for none
+	 */
+	public float getTime()
+	{
+		return time;
+	}
+	/**
+	 * Generic setter method to set the time limit of every move.
+	 * @param time Time limit of every move in milliseconds, 0 for none
+	 */
+	public void setTime(float time)
+	{
+		this.time = time;
+	}
+	/**
+	 * Generic getter method to get the number of random moves.
+	 * @return Number of moves played at random at the start of every game
+	 */
+	public int getRandomPlies()
+	{
+		return randomPlies;
+	}
+	/**
+	 * Generic setter method to set the number of random moves.
+	 * @param randomPlies Number of moves played at random at the start of every game
+	 */
+	public void setRandomPlies(int randomPlies)
+	{
+		this.randomPlies = randomPlies;
+	}
+	/**
+	 * Generic getter method to know if the scores of the moves are written.
+	 * @return <code>true</code> if the score of every move is written with the game
+	 */
+	public boolean isScores()
+	{
+		return scores;
+	}
+	/**
+	 * Generic setter method to set if the scores of the moves are written.
+	 * @param scores <code>true</code> to write the score of every move with the game
+	 */
+	public void setScores(boolean scores)
+	{
+		this.scores = scores;
+	}
+	/**
+	 * Generic getter method to get the number of workers.
+	 * @return Number of workers playing games at once
+	 */
+	public int getWorkers()
+	{
+		return workers;
+	}
+	/**
+	 * Generic setter method to set the number of workers.
+	 * @param workers Number of workers playing games at once, at least 1
+	 */
+	public void setWorkers(int workers)
+	{
+		this.workers = Math.max(1,workers);
+	}
+	/**
+	 * Generic getter method to get the number of games in a chunk.
+	 * @return Number of games a worker collects before appending them to the corpus
+	 */
+	public int getChunkSize()
+	{
+		return chunkSize;
+	}
+	/**
+	 * Generic setter method to set the number of games in a chunk.
+	 * @param chunkSize Number of games a worker collects before appending them to the corpus, at least 1
+	 */
+	public void setChunkSize(int chunkSize)
+	{
+		this.chunkSize = Math.max(1,chunkSize);
+	}
+	/**
+	 * Generic getter method to get the seed of the random moves.
+	 * @return Seed of the random moves
+	 */
+	public long getSeed()
+	{
+		return seed;
+	}
+	/**
+	 * Generic setter method to set the seed of the random moves.
+	 * @param seed Seed of the random moves
+	 */
+	public void setSeed(long seed)
+	{
+		this.seed = seed;
+	}
+	/**
+	 * Runs the games from the command line. Arguments (all optional):
+	 * <code>-games n</code>, <code>-size n</code>, <code>-depth d</code>,
+	 * <code>-time ms</code>, <code>-random n</code> (moves played at random),
+	 * <code>-scores true</code>, <code>-workers n</code>, <code>-chunk n</code>,
+	 * <code>-seed n</code> and <code>-out file</code> (games.ktc by default).
+	 * The progress is reported on the standard error.
+	 * @param args The arguments
+	 * @throws IOException If the corpus cannot be written
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		SelfPlay selfPlay=new SelfPlay();
+		String file="games.ktc";
+		for(int i=0;i+1<args.length;i+=2)
+		{
+			if(args[i].equals("-games"))
+				selfPlay.setGames(Long.parseLong(args[i+1]));
+			else if(args[i].equals("-size"))
+				selfPlay.setSide(Byte.parseByte(args[i+1]));
+			else if(args[i].equals("-depth"))
+				selfPlay.setSearchDepth(Byte.parseByte(args[i+1]));
+			else if(args[i].equals("-time"))
+				selfPlay.setTime(Float.parseFloat(args[i+1]));
+			else if(args[i].equals("-random"))
+				selfPlay.setRandomPlies(Integer.parseInt(args[i+1]));
+			else if(args[i].equals("-scores"))
+				selfPlay.setScores(Boolean.parseBoolean(args[i+1]));
+			else if(args[i].equals("-workers"))
+				selfPlay.setWorkers(Integer.parseInt(args[i+1]));
+			else if(args[i].equals("-chunk"))
+				selfPlay.setChunkSize(Integer.parseInt(args[i+1]));
+			else if(args[i].equals("-seed"))
+				selfPlay.setSeed(Long.parseLong(args[i+1]));
+			else if(args[i].equals("-out"))
+				file=args[i+1];
+			else
+				throw new IllegalArgumentException("Unknown argument: "+args[i]);
+		}
+		Search.calibrate();
+		OutputStream out=new FileOutputStream(file);
+		try
+		{
+			selfPlay.play(out,System.err);
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+}
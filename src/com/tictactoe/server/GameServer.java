@@ -0,0 +1,469 @@
+/*
+ * This file is part of KenTacToe, (c) Kenshin Himura, 2013.
+ *
+ * KenTacToe is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KenTacToe is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KenTacToe.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.tictactoe.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.tictactoe.game.GameSession;
+import com.tictactoe.player.Player;
+import com.tictactoe.search.Search;
+import com.tictactoe.table.Table;
+
+/**
+ * The <code>GameServer</code> class serves games against the AI over HTTP,
+ * with JSON bodies, using the HTTP server of the JDK. The endpoints are:
+ * <ul>
+ * <li><code>POST /games</code> with <code>{"size":n,"human":"X"}</code> (both
+ * optional, 3 and X by default): creates a game.</li>
+ * <li><code>GET /games/{id}</code>: the state of a game.</li>
+ * <li><code>POST /games/{id}/move</code> with <code>{"index":i}</code>: the
+ * human signs cell i.</li>
+ * <li><code>POST /games/{id}/ai</code>: the AI finds and makes its move.</li>
+ * <li><code>DELETE /games/{id}</code>: ends a game and forgets it.</li>
+ * </ul>
+ * Every answer is the state of the game: its id, size, cells (as written by
+ * <code>Table.toString()</code>), the side to move, the human's side, the
+ * status (<code>playing</code>, <code>X won</code>, <code>O won</code> or
+ * <code>draw</code>) and the last move, or <code>{"error":...}</code>.
+ * Every request is handled on a virtual thread of its own, so thousands of
+ * requests can wait at once. The searches of the AI, which keep a thread busy
+ * for as long as they run, are handed to a bounded pool of platform threads,
+ * so they cannot take all the threads handling requests; if too many are
+ * already waiting for one, the request is refused with 503 Service Unavailable.
+ * A game is kept as its current <code>GameSession</code>, which never changes,
+ * so no locks are needed: a move replaces the session it was made on with the
+ * next one, only if no other request has replaced it in the meantime (if one
+ * has, the move is refused with 409 Conflict).
+ * @author Kenshin Himura
+ *
+ */
+public class GameServer
+{
+	/**
+	 * Default port of the server.
+	 */
+	public static final int DEFAULT_PORT=8080;
+	/**
+	 * Number of searches which may wait for a thread of the search pool, per
+	 * thread. Requests for more are answered with 503 Service Unavailable.
+	 */
+	public static final int WAITING_SEARCHES_PER_THREAD=16;
+	/**
+	 * Finds a number field of a JSON body.
+	 */
+	private static final Pattern NUMBER_FIELD=Pattern.compile("\"(\\w+)\"\\s*:\\s*(-?\\d+)");
+	/**
+	 * Finds a string field of a JSON body.
+	 */
+	private static final Pattern STRING_FIELD=Pattern.compile("\"(\\w+)\"\\s*:\\s*\"([^\"]*)\"");
+	/**
+	 * The games being played, by id.
+	 */
+	private final Map<String,GameSession> games=new ConcurrentHashMap<String,GameSession>();
+	/**
+	 * Source of the ids of the games.
+	 */
+	private final AtomicLong nextId=new AtomicLong(1);
+	/**
+	 * Pool of platform threads running the searches of the AI.
+	 */
+	private final ExecutorService searchPool;
+	/**
+	 * Runs every request on a virtual thread of its own.
+	 */
+	private final ExecutorService requestExecutor;
+	/**
+	 * The search of every thread of the search pool, kept from one search to
+	 * the next, so that its tables are allocated only once.
+	 */
+	private final ThreadLocal<Search> searches=new ThreadLocal<Search>();
+	/**
+	 * Time limit of every search of the AI in milliseconds, 0 to let the
+	 * search choose its depth.
+	 */
+	private final float time;
+	/**
+	 * The HTTP server.
+	 */
+	private final HttpServer server;
+	/**
+	 * The <code>RequestException</code> is thrown to answer a request with
+	 * an error.
+	 * @author Kenshin Himura
+	 *
+	 */
+	private static class RequestException extends Exception
+	{
+		private static final long serialVersionUID=1L;
+		/**
+		 * HTTP status of the answer.
+		 */
+		final int status;
+		/**
+		 * Constructor of <code>RequestException</code>.
+		 */
+		RequestException(int status, String message)
+		{
+			super(message);
+			this.status=status;
+		}
+	}
+	/**
+	 * Constructor of the <code>GameServer</code> class.
+	 * @param port Port the server listens on
+	 * @param searchThreads Number of platform threads running searches
+	 * @param time Time limit of every search of the AI in milliseconds, 0 to
+	 * let the search choose its depth
+	 * @throws IOException If the server cannot listen on the port
+	 */
+	public GameServer(int port, int searchThreads, float time) throws IOException
+	{
+		this.time=time;
+		searchThreads=Math.max(1,searchThreads);
+		searchPool=new ThreadPoolExecutor(searchThreads,searchThreads,0,TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(searchThreads*WAITING_SEARCHES_PER_THREAD));
+		server=HttpServer.create(new InetSocketAddress(port),0);
+		requestExecutor=Executors.newVirtualThreadPerTaskExecutor();
+		server.setExecutor(requestExecutor);
+		server.createContext("/games",new HttpHandler()
+		{
+			@Override
+			public void handle(HttpExchange exchange) throws IOException
+			{
+				GameServer.this.handle(exchange);
+			}
+		});
+	}
+	/**
+	 * This method starts the server.
+	 */
+	public void start()
+	{
+		server.start();
+	}
+	/**
+	 * This method stops the server, the requests being handled and the
+	 * searches running.
+	 */
+	public void stop()
+	{
+		server.stop(0);
+		requestExecutor.shutdownNow();
+		searchPool.shutdownNow();
+	}
+	/**
+	 * This method answers one request. Whatever goes wrong, the request is
+	 * answered (with 500 Internal Server Error if nothing better fits) and
+	 * the exchange is closed, so the client never waits for nothing.
+	 */
+	private void handle(HttpExchange exchange) throws IOException
+	{
+		try
+		{
+			int status=200;
+			String answer;
+			try
+			{
+				answer=route(exchange.getRequestMethod(),exchange.getRequestURI().getPath(),readBody(exchange));
+			}
+			catch(RequestException e)
+			{
+				status=e.status;
+				answer=error(e.getMessage());
+			}
+			catch(NumberFormatException e)
+			{
+				status=400;
+				answer=error("Not a number: "+e.getMessage());
+			}
+			catch(IllegalArgumentException e)
+			{
+				status=400;
+				answer=error(e.getMessage());
+			}
+			catch(IllegalStateException e)
+			{
+				status=409;
+				answer=error(e.getMessage());
+			}
+			catch(RuntimeException e)
+			{
+				status=500;
+				answer=error(String.valueOf(e));
+			}
+			byte bytes[]=answer.getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type","application/json");
+			exchange.sendResponseHeaders(status,bytes.length);
+			OutputStream out=exchange.getResponseBody();
+			out.write(bytes);
+			out.close();
+		}
+		finally
+		{
+			exchange.close();
+		}
+	}
+	/**
+	 * This method finds the endpoint of a request and runs it.
+	 * @return The answer, in JSON
+	 */
+	private String route(String method, String path, String body) throws RequestException
+	{
+		String parts[]=path.split("/");
+		//parts[0] is empty, parts[1] is "games" (the context matches any path starting with /games)
+		if((parts.length<2)||!parts[1].equals("games"))
+			throw new RequestException(404,"No such endpoint: "+method+" "+path);
+		if(parts.length==2)
+		{
+			if(!method.equals("POST"))
+				throw new RequestException(405,"Use POST to create a game");
+			return create(body);
+		}
+		String id=parts[2];
+		GameSession game=games.get(id);
+		if(game==null)
+			throw new RequestException(404,"No such game: "+id);
+		if(parts.length==3)
+		{
+			if(method.equals("DELETE"))
+			{
+				games.remove(id);
+				return "{\"id\":\""+id+"\"}";
+			}
+			if(!method.equals("GET"))
+				throw new RequestException(405,"Use GET or DELETE on a game");
+			return state(id,game);
+		}
+		if((parts.length==4)&&method.equals("POST"))
+		{
+			if(parts[3].equals("move"))
+				return humanMove(id,game,body);
+			if(parts[3].equals("ai"))
+				return aiMove(id,game);
+		}
+		throw new RequestException(404,"No such endpoint: "+method+" "+path);
+	}
+	/**
+	 * Creates a game.
+	 */
+	private String create(String body) throws RequestException
+	{
+		String size=field(NUMBER_FIELD,body,"size");
+		String human=field(STRING_FIELD,body,"human");
+		byte side=(size==null)?3:Byte.parseByte(size);
+		if((side<1)||(side>11))
+			throw new RequestException(400,"Size must be 1 to 11");
+		if((human!=null)&&!human.equals("X")&&!human.equals("O"))
+			throw new RequestException(400,"Human must be X or O");
+		Player user=new Player("Human",(human==null)?'X':human.charAt(0));
+		Player ai=new Player((user.getPlayerSign()=='X')?'O':'X');
+		GameSession game=(user.getPlayerSign()=='X')?new GameSession(side,user,ai):new GameSession(side,ai,user);
+		String id=Long.toString(nextId.getAndIncrement());
+		games.put(id,game);
+		return state(id,game);
+	}
+	/**
+	 * Makes a move of the human.
+	 */
+	private String humanMove(String id, GameSession game, String body) throws RequestException
+	{
+		String index=field(NUMBER_FIELD,body,"index");
+		if(index==null)
+			throw new RequestException(400,"Expected {\"index\":i}");
+		checkTurn(game,false);
+		int cell=Integer.parseInt(index);
+		if((cell<0)||(cell>=game.getTable().getSizeOfTable())||(game.getValue((byte)cell)!='-'))
+			throw new RequestException(409,"Illegal move: "+cell);
+		return replace(id,game,game.play((byte)cell));
+	}
+	/**
+	 * Finds and makes a move of the AI. The search runs on the search pool,
+	 * while the thread of the request waits for it.
+	 */
+	private String aiMove(String id, final GameSession game) throws RequestException
+	{
+		checkTurn(game,true);
+		byte move;
+		try
+		{
+			move=searchPool.submit(new Callable<Byte>()
+			{
+				@Override
+				public Byte call()
+				{
+					return search(game);
+				}
+			}).get();
+		}
+		catch(RejectedExecutionException e)
+		{
+			throw new RequestException(503,"Too many searches waiting, try again later");
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new RequestException(503,"Interrupted");
+		}
+		catch(ExecutionException e)
+		{
+			throw new RequestException(500,String.valueOf(e.getCause()));
+		}
+		return replace(id,game,game.play(move));
+	}
+	/**
+	 * Replaces the session of a game with the next one, if it has not been
+	 * replaced by another request since it was read.
+	 */
+	private String replace(String id, GameSession game, GameSession next) throws RequestException
+	{
+		if(!games.replace(id,game,next))
+			throw new RequestException(409,"The game has changed, try again");
+		return state(id,next);
+	}
+	/**
+	 * Searches a position with the search of the current thread.
+	 * @return The index of the cell of the best move
+	 */
+	private byte search(GameSession game)
+	{
+		Search search=searches.get();
+		if(search==null)
+		{
+			search=new Search();
+			searches.set(search);
+		}
+		Table position=game.getTable();
+		search.setCurrentState(position);
+		search.setCurrentSearchState(position);
+		search.setCurrentPlayer(game.getCurrentPlayer());
+		search.setSearchDepth((byte)(position.getNoOfDs()-1));
+		search.setTime(time);
+		return search.getBestMove().getIndex();
+	}
+	/**
+	 * Checks that a game is not over and that it is the human's (or the AI's) turn.
+	 */
+	private static void checkTurn(GameSession game, boolean ai) throws RequestException
+	{
+		if(game.isOver())
+			throw new RequestException(409,"The game is over");
+		if(game.getCurrentPlayer().isAI()!=ai)
+			throw new RequestException(409,"It is "+game.getCurrentPlayer().getPlayerSign()+"'s turn");
+	}
+	/**
+	 * Writes the state of a game in JSON.
+	 */
+	private static String state(String id, GameSession game)
+	{
+		String status="playing";
+		if(game.getResult()==1)
+			status="X won";
+		else if(game.getResult()==0)
+			status="O won";
+		else if(game.isOver())
+			status="draw";
+		char human=game.getPlayerOne().isAI()?'O':'X';
+		return "{\"id\":\""+id+"\",\"size\":"+game.getGridSize()+",\"cells\":\""+game
+				+"\",\"toMove\":\""+game.getCurrentPlayer().getPlayerSign()+"\",\"human\":\""+human
+				+"\",\"status\":\""+status+"\",\"lastMove\":"+game.getLastMove()+"}";
+	}
+	/**
+	 * Finds a field of a JSON body.
+	 * @return The value of the field, <code>null</code> if not found
+	 */
+	private static String field(Pattern pattern, String body, String name)
+	{
+		Matcher matcher=pattern.matcher(body);
+		while(matcher.find())
+			if(matcher.group(1).equals(name))
+				return matcher.group(2);
+		return null;
+	}
+	/**
+	 * Writes an error answer in JSON.
+	 */
+	private static String error(String message)
+	{
+		return "{\"error\":\""+escape(String.valueOf(message))+"\"}";
+	}
+	/**
+	 * Escapes the quotes and backslashes of a JSON string.
+	 */
+	private static String escape(String text)
+	{
+		return text.replace("\\","\\\\").replace("\"","\\\"");
+	}
+	/**
+	 * Reads the body of a request.
+	 */
+	private static String readBody(HttpExchange exchange) throws IOException
+	{
+		InputStream in=exchange.getRequestBody();
+		byte bytes[]=in.readAllBytes();
+		in.close();
+		return new String(bytes,StandardCharsets.UTF_8);
+	}
+	/**
+	 * Runs the server. Arguments (all optional): <code>-port p</code>,
+	 * <code>-searchThreads n</code> (number of processors by default) and
+	 * <code>-time ms</code>.
+	 * @param args The arguments
+	 * @throws IOException If the server cannot listen on the port
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		int port=DEFAULT_PORT;
+		int searchThreads=Runtime.getRuntime().availableProcessors();
+		float time=0;
+		for(int i=0;i+1<args.length;i+=2)
+		{
+			if(args[i].equals("-port"))
+				port=Integer.parseInt(args[i+1]);
+			else if(args[i].equals("-searchThreads"))
+				searchThreads=Integer.parseInt(args[i+1]);
+			else if(args[i].equals("-time"))
+				time=Float.parseFloat(args[i+1]);
+			else
+				throw new IllegalArgumentException("Unknown argument: "+args[i]);
+		}
+		Search.calibrate();
+		new GameServer(port,searchThreads,time).start();
+		System.out.println("KenTacToe server listening on port "+port);
+	}
+}
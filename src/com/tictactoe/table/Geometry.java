@@ -0,0 +1,264 @@
+/*
+ * This file is part of KenTacToe, (c) Kenshin Himura, 2013.
+ *
+ * KenTacToe is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KenTacToe is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KenTacToe.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.tictactoe.table;
+
+import java.util.Random;
+
+/**
+ * The <code>Geometry</code> class holds everything about a table which depends
+ * only on its number of rows and columns, and not on what has been signed in it.
+ * This used to be rebuilt (as <code>Row</code>, <code>Col</code> and <code>Diag</code>
+ * objects) for every table, but since it never changes, it is now computed once per
+ * board size and shared by all tables of that size.
+ * Lines are numbered rows first, then columns, then the two diagonals (the
+ * diagonals are present only in square tables).
+ * @author Kenshin Himura
+ *
+ */
+final class Geometry
+{
+	/**
+	 * Maximum number of rows (or columns) supported. 11x11 is the largest
+	 * table whose cell indices fit into a byte.
+	 */
+	static final byte MAX_SIDE=11;
+	/**
+	 * Score of a won table, from the winner's perspective. Every other score
+	 * is kept below half of it, so that scores never overflow in the search.
+	 */
+	static final long WIN_SCORE=Long.MAX_VALUE/4;
+	/**
+	 * Cache of the geometries created so far, indexed by rows and columns.
+	 */
+	private static final Geometry cache[][]=new Geometry[MAX_SIDE+1][MAX_SIDE+1];
+	/**
+	 * Number of rows of tables of this geometry.
+	 */
+	final byte noOfRows;
+	/**
+	 * Number of columns of tables of this geometry.
+	 */
+	final byte noOfCols;
+	/**
+	 * Number of cells (rows * cols) of tables of this geometry.
+	 */
+	final byte sizeOfTable;
+	/**
+	 * Number of 64-bit words needed to hold one bit per cell.
+	 * One word is enough up to 8x8, two words up to 11x11.
+	 */
+	final int words;
+	/**
+	 * Number of lines (rows, columns and diagonals) which can be completed.
+	 */
+	final int noOfLines;
+	/**
+	 * Index of the first diagonal line, or <code>noOfLines</code> if the
+	 * table is not square and has no diagonals.
+	 */
+	final int firstDiag;
+	/**
+	 * Bit masks of the cells of every line, indexed by line and word.
+	 */
+	final long lineMasks[][];
+	/**
+	 * Number of cells of every line.
+	 */
+	final byte lineLengths[];
+	/**
+	 * Lines passing through every cell, indexed by cell index.
+	 */
+	final byte cellLines[][];
+	/**
+	 * Bit masks of the cells which actually exist, indexed by word.
+	 */
+	final long fullMask[];
+	/**
+	 * Zobrist keys of every cell, indexed by cell index and side (0 for X,
+	 * 1 for O). The hash of a table is the XOR of the keys of its signed cells.
+	 * Generated from a fixed seed, so that hashes are the same from run to run.
+	 */
+	final long zobrist[][];
+	/**
+	 * Number of symmetries (rotations and reflections) of tables of this
+	 * geometry: 8 for square tables, only the identity otherwise.
+	 */
+	final int noOfTransforms;
+	/**
+	 * Cell index lookup tables of the symmetries, indexed by transform and cell
+	 * index. Transform 0 is the identity, 1 to 3 are rotations by 90, 180 and 270
+	 * degrees, 4 and 5 are reflections about the middle column and the middle row,
+	 * and 6 and 7 are reflections about the two diagonals.
+	 */
+	final byte transforms[][];
+	/**
+	 * Inverse lookup tables of the symmetries, such that
+	 * <code>inverseTransforms[t][transforms[t][i]]==i</code>.
+	 */
+	final byte inverseTransforms[][];
+	/**
+	 * Base of the weights of the evaluation. The evaluation weighs a side's
+	 * progress by powers of (number of cells + 1), which is kept as the base
+	 * as long as the largest score fits into a <code>long</code> (up to 8x8),
+	 * and cut down to the largest base which fits for larger tables.
+	 * All weights are multiplied by the base, so that they are whole numbers
+	 * (the smallest weight was the inverse of the base).
+	 */
+	final long scoreBase;
+	/**
+	 * Score of a count of a side's signs, indexed by the count: the sum of
+	 * i * base^(i+1) over every i from 1 to the number of rows that the count exceeds.
+	 */
+	final long countScores[];
+	/**
+	 * Weight of every line free of the opponent's signs: base^(number of rows).
+	 */
+	final long freeLineScore;
+	/**
+	 * Weight of every line open to a side (plus one): base^(number of rows + 1).
+	 */
+	final long openLineScore;
+	/**
+	 * Constructor of <code>Geometry</code>. Computes the masks of all lines of
+	 * a table of the specified number of rows and columns.
+	 * @param noOfRows The number of rows in the table.
+	 * @param noOfCols The number of columns in the table.
+	 */
+	private Geometry(byte noOfRows,byte noOfCols)
+	{
+		this.noOfRows=noOfRows;
+		this.noOfCols=noOfCols;
+		this.sizeOfTable=(byte)(noOfRows*noOfCols);
+		this.words=(sizeOfTable+63)>>>6;
+		this.firstDiag=noOfRows+noOfCols;
+		this.noOfLines=firstDiag+((noOfRows==noOfCols)?2:0);
+		lineMasks=new long[noOfLines][words];
+		lineLengths=new byte[noOfLines];
+		fullMask=new long[words];
+		byte linesOfCell[][]=new byte[sizeOfTable][4];
+		byte linesOfCellCount[]=new byte[sizeOfTable];
+		for(byte i=0;i<noOfRows;i++)
+			for(byte j=0;j<noOfCols;j++)
+			{
+				int index=(i*noOfCols)+j;
+				fullMask[index>>>6]|=1L<<index;
+				addCell(i,index,linesOfCell,linesOfCellCount);
+				addCell(noOfRows+j,index,linesOfCell,linesOfCellCount);
+				//left diagonal
+				if((noOfRows==noOfCols)&&(i==j))
+					addCell(firstDiag,index,linesOfCell,linesOfCellCount);
+				//right diagonal
+				if((noOfRows==noOfCols)&&((i+j+1)==noOfRows))
+					addCell(firstDiag+1,index,linesOfCell,linesOfCellCount);
+			}
+		zobrist=new long[sizeOfTable][2];
+		Random random=new Random(0x4B656E5461L+sizeOfTable);
+		for(int i=0;i<sizeOfTable;i++)
+		{
+			zobrist[i][0]=random.nextLong();
+			zobrist[i][1]=random.nextLong();
+		}
+		noOfTransforms=(noOfRows==noOfCols)?8:1;
+		transforms=new byte[noOfTransforms][sizeOfTable];
+		inverseTransforms=new byte[noOfTransforms][sizeOfTable];
+		int n=noOfRows-1;
+		for(int i=0;i<noOfRows;i++)
+			for(int j=0;j<noOfCols;j++)
+			{
+				int image[][]={{i,j},{j,n-i},{n-i,n-j},{n-j,i},{i,n-j},{n-i,j},{j,i},{n-j,n-i}};
+				for(int t=0;t<noOfTransforms;t++)
+				{
+					byte from=(byte)((i*noOfCols)+j);
+					byte to=(byte)((image[t][0]*noOfCols)+image[t][1]);
+					transforms[t][from]=to;
+					inverseTransforms[t][to]=from;
+				}
+			}
+		long base=sizeOfTable+1;
+		while((base>2)&&(maxScore(base)>(WIN_SCORE/2)))
+			base--;
+		scoreBase=base;
+		countScores=new long[Math.max(sizeOfTable,2*noOfRows)+1];
+		long weight=base;
+		for(int i=1;i<=noOfRows;i++)
+		{
+			weight*=base;
+			for(int count=i+1;count<countScores.length;count++)
+				countScores[count]+=weight*i;
+		}
+		freeLineScore=power(base,noOfRows);
+		openLineScore=power(base,noOfRows+1);
+		cellLines=new byte[sizeOfTable][];
+		for(int i=0;i<sizeOfTable;i++)
+		{
+			cellLines[i]=new byte[linesOfCellCount[i]];
+			System.arraycopy(linesOfCell[i],0,cellLines[i],0,linesOfCellCount[i]);
+		}
+	}
+	/**
+	 * Works out (roughly, in floating point) the largest score of a table of
+	 * this geometry, if the weights of its evaluation were powers of the base.
+	 */
+	private double maxScore(long base)
+	{
+		double score=0;
+		for(int i=1;i<=noOfRows;i++)
+			score+=3*i*Math.pow(base,i+1);
+		score+=noOfLines*Math.pow(base,noOfRows);
+		score+=(noOfLines+1)*Math.pow(base,noOfRows+1);
+		return score+1;
+	}
+	/**
+	 * Raises a base to a power, exactly.
+	 */
+	private static long power(long base,int exponent)
+	{
+		long result=1;
+		for(int i=0;i<exponent;i++)
+			result*=base;
+		return result;
+	}
+	/**
+	 * Adds a cell to a line, while constructing the geometry.
+	 */
+	private void addCell(int line,int index,byte linesOfCell[][],byte linesOfCellCount[])
+	{
+		lineMasks[line][index>>>6]|=1L<<index;
+		lineLengths[line]++;
+		linesOfCell[index][linesOfCellCount[index]++]=(byte)line;
+	}
+	/**
+	 * This method is used to obtain the shared geometry of tables of the specified
+	 * number of rows and columns, creating it the first time it is asked for.
+	 * @param noOfRows The number of rows in the table.
+	 * @param noOfCols The number of columns in the table.
+	 * @return The geometry of such tables.
+	 */
+	static Geometry of(byte noOfRows,byte noOfCols)
+	{
+		if((noOfRows<1)||(noOfCols<1)||(noOfRows>MAX_SIDE)||(noOfCols>MAX_SIDE))
+			throw new IllegalArgumentException("Tables can have 1 to "+MAX_SIDE+" rows and columns.");
+		synchronized(cache)
+		{
+			if(cache[noOfRows][noOfCols]==null)
+				cache[noOfRows][noOfCols]=new Geometry(noOfRows,noOfCols);
+			return cache[noOfRows][noOfCols];
+		}
+	}
+}
@@ -23,442 +23,87 @@ import com.tictactoe.move.Move;
 /**
  * The <code>Table</code> class forms the basic framework of grid like structures.
  * Used to create a game grid in the tic tac toe game class.
- * Cells, Rows, Columns and Diagonals are nested in this class to properly
- * define the inter-relationships and not consume excess memory, while
- * still implementing pure object oriented programming (ie) Tables contain
- * rows, columns, cells, while rows, columns also contain cells, which are
- * not duplicates but references to the actual cells of the table itself.
+ * The cells are packed into two bit boards, one holding the cells signed by X
+ * and the other the cells signed by O. A bit board is a single <code>long</code>
+ * up to 8x8, and a second one holds the cells from 64 on up to 11x11, so the
+ * bit boards are copied along with the other fields of a table, without any
+ * arrays of their own. Rows, columns and diagonals are no longer objects of their
+ * own but bit masks over the cells, shared by all tables of the same size
+ * (see <code>Geometry</code>).
  * @author Kenshin Himura
  */
 public class Table implements Cloneable
 {
 	/**
-	 * The <code>Cell</code> is the basic building block of the table.
-	 * In addition to remembering of which table it is a part, it also
-	 * returns rows and columns it belongs to and also has row and column indices
-	 * which can be set during construction of the table.
-	 * @author Kenshin Himura
+	 * Bit board of the cells 0 to 63 signed by X, the whole table up to 8x8.
+	 * Bit i is set if cell i holds an 'X'.
 	 */
-	public class Cell
-	{
-		/**
-		 * Represents the value of the cell.
-		 * Represents a character.
-		 * Usually will be set to '-'(empty cell),'X' OR 'O'
-		 */
-		private char value;
-		/**
-		 * Holds the row index of the cell in the parent table.
-		 */
-		private byte rowIndex;
-		/**
-		 * Holds the column index of the cell in the parent table.
-		 */
-		private byte colIndex;
-		/**
-		 * Constructor of Cell.
-		 * Sets the default value of the cell to <code>'-'</code>
-		 */
-		public Cell()
-		{
-			this.value='-';
-		}
-		/**
-		 * <code>getCol()</code> is used to get the parent column of the cell.
-		 * It returns a reference of type Col, which is the class which represents columns.
-		 * @return	Column of the cell
-		 */
-		public Col getCol()
-		{
-			return Table.this.getCol(colIndex);
-		}
-		/**
-		 * This method is used to get the column index of the cell.
-		 * @return	Column Index of the cell
-		 */
-		public byte getColIndex()
-		{
-			return colIndex;
-		}
-		/**
-		 * <code>getRow()</code> is used to get the parent row of the cell.
-		 * It returns a reference of type Row, which is the class which represents rows.
-		 * @return	Row of the cell
-		 */
-		public Row getRow()
-		{
-			return Table.this.getRow(rowIndex);
-		}
-		/**
-		 * This method is used to get the row index of the cell.
-		 * @return	Row Index of the cell
-		 */
-		public byte getRowIndex()
-		{
-			return rowIndex;
-		}
-		/**
-		 * <code>getTable()</code> is used to get the parent Table of the cell.
-		 * It returns a reference of type Table, which is the class which represents tables.
-		 * @return	Table(parent) of the cell
-		 */
-		public Table getTable()
-		{
-			return Table.this;
-		}
-		/**
-		 * This method is used to obtain the private member <code>value</code> of the cell
-		 * @return Value of cell
-		 */
-		public char getValue()
-		{
-			return value;
-		}
-		/**
-		 * This method sets the column index of the cell.
-		 * Used automatically during Table construction.
-		 * Need/Must not be used anywhere else.
-		 */
-		public void setColIndex(byte colIndex)
-		{
-			this.colIndex=colIndex;
-		}
-		/**
-		 * This method sets the row index of the cell.
-		 * Used automatically during Table construction.
-		 * Need/Must not be used anywhere else.
-		 */
-		public void setRowIndex(byte rowIndex)
-		{
-			this.rowIndex=rowIndex;
-		}
-		/**
-		 * This is the generic set function of the <code>value</code>
-		 * member of the class <code>Cell</code>. Since it is a private member, the set
-		 * function is used to set it.
-		 * @param value
-		 */
-		public void setValue(char value)
-		{
-			this.value=value;
-		}
-	}
+	private long xCells;
 	/**
-	 * The <code>Col</code> class represents the column of a table.
-	 * It also remembers its corresponding table and its index in the table,
-	 * and also the number of rows in the table as so many cells should be
-	 * instantiated during construction.
-	 * @author Kenshin Himura
-	 *
+	 * Bit board of the cells from 64 on signed by X, on tables larger than
+	 * 8x8 (0 on the others). Bit i is set if cell 64+i holds an 'X'.
 	 */
-	public class Col
-	{
-		/**
-		 * An array of type <code>Cell</code>.
-		 * Holds the cells of the column, row-wise
-		 */
-		private Cell cells[];
-		/**
-		 * Holds the column index of the colummn in its parent table.
-		 */
-		private byte colIndex;
-		/**
-		 * Default constructor of class
-		 * <code>Col</code>, which represents columns of a <code>Table</code> class.
-		 */
-		public Col()
-		{
-			cells=new Cell[noOfRows];
-			for(byte i=0;i<noOfRows;i++)
-				cells[i]=new Cell();
-		}
-		/**
-		 * This method is used to get a specific cell of a column(j) using its row index.
-		 * @param rowIndex (i)
-		 * @return Cell of the particular row index(i) in the column(j),
-		 * (i.e.)Cell[i][j] of Table
-		 */
-		public Cell getCell(byte rowIndex)
-		{
-			return cells[rowIndex];
-		}
-		/**
-		 * This method is used to set a cell to the column by specifying its row index
-		 * @param rowIndex row index of the cell
-		 * @param cell Cell to be set
-		 */
-		public void setCell(byte rowIndex, Cell cell)
-		{
-			this.cells[rowIndex]=cell;
-		}
-		/**
-		 * This method is used to get all the cells of the particular column.
-		 * @return All cells of column
-		 */
-		public Cell[] getCells()
-		{
-			return cells;
-		}
-		/**
-		 * This method is used to get the column index of the column in table it pertains to.
-		 * @return Column index
-		 */
-		public byte getColIndex()
-		{
-			return colIndex;
-		}
-		/**
-		 * <code>getTable()</code> is used to get the parent <code>Table</code> of the column.
-		 * It returns a reference of type <code>Table</code>, which is the class which represents tables.
-		 * @return	Table(parent) of the column
-		 */
-		public Table getTable()
-		{
-			return Table.this;
-		}
-		/**
-		 * This method is used to check if the column is complete,
-		 * (i.e.) filled with the same characters.
-		 * Note that '-' denotes an empty cell and does not fulfill the completion criterion.
-		 * @return -1 if not Complete, 1 if X is Complete, 0 if O is Complete
-		 */
-		public byte isComplete()
-		{
-			if(cells[0].getValue()!='-')
-			{
-				byte j=0;
-				for(byte i=0;i<(noOfRows-1);i++)
-					if(cells[i].getValue()==cells[i+1].getValue())
-						j++;
-				if(j==(noOfRows-1))
-				{
-					if(cells[0].getValue()=='X')
-						return 1;
-					else
-						return 0;
-				}
-			}
-			return -1;	
-		}
-		/**
-		 * Generic setter method to set column index of the column of the table
-		 * @param colIndex
-		 */
-		public void setColIndex(byte colIndex)
-		{
-			this.colIndex = colIndex;
-		}
-	}
+	private long xHighCells;
 	/**
-	 * The <code>Diag</code> class is simply the instance of a diagonal in square tables,
-	 * used here as it will prove useful to check if diagonals have been completed
-	 * in a game of tic tac toe. Needless to point out, it has to remember its table and its max no.
-	 * of elements.
-	 * @author Kenshin Himura
-	 *
+	 * Bit board of the cells 0 to 63 signed by O, laid out like <code>xCells</code>.
 	 */
-	public class Diag
-	{
-		/**
-		 * An array of type <code>Cell</code>.
-		 * Holds the cells of the diagonal, row-wise
-		 */
-		private Cell cells[];
-		/**
-		 * Default constructor of the <code>Diag</code> class
-		 */
-		public Diag()
-		{
-			cells=new Cell[noOfRows];
-			for(byte i=0;i<noOfRows;i++)
-				cells[i]=new Cell();
-		}
-		/**
-		 * This method is used to get a specific cell of a diagonal using its index(i).
-		 * @param index (i)
-		 * @return Cell of the particular row index(i) in the column(i),
-		 * (i.e.)Cell[i][i] of Table
-		 */
-		public Cell getCell(byte index)
-		{
-			return cells[index];
-		}
-		/**
-		 * This method is used to get all the cells of the particular diagonal.
-		 * @return All cells of the diagonal
-		 */
-		public Cell[] getCells()
-		{
-			return cells;
-		}
-		/**
-		 * This method is used to check if the diagonal is complete,
-		 * (i.e.) filled with the same characters.
-		 * Note that '-' denotes an empty cell and does not fulfill the completion criterion.
-		 * @return -1 if not Complete, 1 if X is Complete, 0 if O is Complete
-		 */
-		public byte isComplete()
-		{
-			if(cells[0].getValue()!='-')
-			{
-				byte j=0;
-				for(byte i=0;i<(noOfRows-1);i++)
-					if(cells[i].getValue()==cells[i+1].getValue())
-						j++;
-				if(j==(noOfRows-1))
-				{
-					if(cells[0].getValue()=='X')
-						return 1;
-					else
-						return 0;
-				}
-			}
-			return -1;	
-		}
-		/**
-		 * <code>getTable()</code> is used to get the parent <code>Table</code> of the diagonal.
-		 * It returns a reference of type <code>Table</code>, which is the class which represents tables.
-		 * @return	Table(parent) of the diagonal
-		 */
-		public Table getTable()
-		{
-			return Table.this;
-		}
-		/**
-		 * Generic setter method to set the cell of an index of a diagonal of the table
-		 * @param i index of the cell in the diagonal
-		 * @param cell Cell to be set
-		 */
-		public void setCell(byte i, Cell cell)
-		{
-			this.cells[i]=cell;
-		}
-	}
+	private long oCells;
 	/**
-	 * The <code>Row</code> class represents the row of a table.
-	 * It also remembers its corresponding table and its index in the table,
-	 * and also the number of columns in the table as so many cells should be
-	 * instantiated during construction.
-	 * @author Kenshin Himura
-	 *
+	 * Bit board of the cells from 64 on signed by O, laid out like <code>xHighCells</code>.
 	 */
-	public class Row
-	{
-		/**
-		 * An array of type <code>Cell</code>.
-		 * Holds the cells of the row, column-wise
-		 */
-		private Cell cells[];
-		/**
-		 * Holds the column index of the row in its parent table.
-		 */
-		private byte rowIndex;
-		/**
-		 * Default constructor of the <code>Row</code> class
-		 */
-		public Row()
-		{
-			cells=new Cell[noOfCols];
-			for(byte i=0;i<noOfCols;i++)
-				cells[i]=new Cell();
-		}
-		/**
-		 * This method is used to get a specific cell of a row(i) using its column index.
-		 * @param colIndex (j)
-		 * @return Cell of the particular column index(j) in the row(i),
-		 * (i.e.)Cell[i][j] of Table
-		 */
-		public Cell getCell(byte colIndex)
-		{
-			return cells[colIndex];
-		}
-		/**
-		 * This method is used to set a cell to the row by specifying its col index
-		 * @param colIndex column index of the cell
-		 * @param cell Cell to be set
-		 */
-		public void setCell(byte colIndex, Cell cell)
-		{
-			this.cells[colIndex]=cell;
-		}
-		/**
-		 * This method is used to get all the cells of the particular row.
-		 * @return All cells of the row
-		 */
-		public Cell[] getCells()
-		{
-			return cells;
-		}
-		/**
-		 * This method is used to get the row index of the row in table it pertains to.
-		 * @return Row index
-		 */
-		public byte getRowIndex()
-		{
-			return rowIndex;
-		}
-		/**
-		 * <code>getTable()</code> is used to get the parent <code>Table</code> of the row.
-		 * It returns a reference of type <code>Table</code>, which is the class which represents tables.
-		 * @return	Table(parent) of the row
-		 */
-		public Table getTable()
-		{
-			return Table.this;
-		}
-		/**
-		 * This method is used to check if the row is complete,
-		 * (i.e.) filled with the same characters.
-		 * Note that '-' denotes an empty cell and does not fulfill the completion criterion.
-		 * @return -1 if not Complete, 1 if X is Complete, 0 if O is Complete
-		 */
-		public byte isComplete()
-		{
-			if(cells[0].getValue()!='-')
-			{
-				byte j=0;
-				for(byte i=0;i<(noOfCols-1);i++)
-					if(cells[i].getValue()==cells[i+1].getValue())
-						j++;
-				if(j==(noOfCols-1))
-				{
-					if(cells[0].getValue()=='X')
-						return 1;
-					else
-						return 0;
-				}
-			}
-			return -1;	
-		}
-		/**
-		 * Generic setter method to set row index of the row of the table
-		 * @param rowIndex
-		 */
-		public void setRowIndex(byte rowIndex)
-		{
-			this.rowIndex = rowIndex;
-		}
-	}
+	private long oHighCells;
+	/**
+	 * The shared rows, columns and diagonals of tables of this size.
+	 */
+	private Geometry geometry;
+	/**
+	 * Number of X's on every line, indexed like the lines of the <code>Geometry</code>.
+	 * Kept up to date by <code>updateTable()</code>, so that the evaluation never
+	 * has to rescan the cells.
+	 */
+	private byte xCount[];
+	/**
+	 * Number of O's on every line, indexed like the lines of the <code>Geometry</code>.
+	 */
+	private byte oCount[];
+	/**
+	 * Total number of X's in the table.
+	 */
+	private byte xTotal;
 	/**
-	 * An array of type <code>Cell</code>.
-	 * Holds the cells of the table, row-wise,column-wise, maximum of noOfRowsxnoOfColumns cells
+	 * Total number of O's in the table.
 	 */
-	private Cell cells[];
+	private byte oTotal;
 	/**
-	 * An array of type <code>Row</code>.
-	 * Holds the rows of the table, column-wise.
+	 * Number of lines which don't have a single 'X'.
 	 */
-	private Row rows[];
+	private byte linesFreeOfX;
 	/**
-	 * An array of type <code>Col</code>.
-	 * Holds the columns of the table, row-wise.
+	 * Number of lines which don't have a single 'O'.
 	 */
-	private Col cols[];
+	private byte linesFreeOfO;
 	/**
-	 * An array of type <code>Diag</code>.
-	 * Holds the diagonals of the table, row-wise.
+	 * Number of lines which have at least one 'X' and no 'O' (still open to X).
 	 */
-	private Diag diags[];
+	private byte linesOpenToX;
+	/**
+	 * Number of lines which have at least one 'O' and no 'X' (still open to O).
+	 */
+	private byte linesOpenToO;
+	/**
+	 * Number of lines completely filled with X.
+	 */
+	private byte linesCompleteX;
+	/**
+	 * Number of lines completely filled with O.
+	 */
+	private byte linesCompleteO;
+	/**
+	 * Zobrist hashes of the table as seen through each of its symmetries
+	 * (see <code>Geometry.transforms</code>), the first one being the hash of the
+	 * table itself. Kept up to date by <code>updateTable()</code>.
+	 */
+	private long hashes[];
 	/**
 	 * Holds the number of rows of the table at any time.
 	 */
@@ -473,14 +118,14 @@ public class Table implements Cloneable
 	 */
 	private byte sizeOfTable;
 	/**
-	 * Represents the score of the table as a signed double value,
+	 * Represents the score of the table as a signed long value,
 	 * from X's perspective.
 	 */
-	private double score=0;
+	private long score=0;
 	/**
 	 * Holds the winning score of the table, from X's perspective.
 	 */
-	private double winScore;
+	private long winScore;
 	/**
 	 * Default Constructor of <code>Table</code> class.
 	 * Never used, simply defined to define parameterized constructors.
@@ -491,40 +136,24 @@ public class Table implements Cloneable
 	}
 	/**
 	 * This is the constructor of class <code>Table</code> which is used in the program.
-	 * It takes two parameters which may not be equal and constructs a table with the specified number of rows and columns and sets proper references
-	 * to the cells of the table so that they can be accessed both by the <code>Row</code> objects and <code>Col</code> objects of the <code>Table</code> object.
-	 * Also, the constructor calls the <code>init()</code> function of the <code>Table</code> class, to initialize the <code>Table</code>.
+	 * It takes two parameters which may not be equal and constructs an empty table with
+	 * the specified number of rows and columns. The rows, columns and diagonals are
+	 * looked up from the shared <code>Geometry</code> of tables of that size.
 	 * @param noOfRows The number of rows in the table to be created.
 	 * @param noOfCols The number of columns in the table to be created.
 	 */
 	public Table(byte noOfRows,byte noOfCols)
 	{
+		this.geometry=Geometry.of(noOfRows,noOfCols);
 		this.noOfRows=noOfRows;
 		this.noOfCols=noOfCols;
-		this.sizeOfTable=(byte)(noOfRows*noOfCols);
-		rows=new Row[this.noOfRows];
-		for(byte i=0;i<noOfRows;i++)
-			rows[i]=new Row();
-		cols=new Col[this.noOfCols];
-		for(byte i=0;i<noOfCols;i++)
-			cols[i]=new Col();
-		cells=new Cell[this.sizeOfTable];
-		for(byte i=0;i<sizeOfTable;i++)
-			cells[i]=new Cell();
-		diags=new Diag[2];
-		for(byte i=0;i<2;i++)
-			diags[i]=new Diag();
-		setWinScore(Math.pow(sizeOfTable+1, sizeOfTable+1)-1);
-		init();
-	}
-	/**
-	 * This method is used to obtain the cells of a specific column of the table using its column index.
-	 * @param colIndex Index of the column in the table
-	 * @return Array of type <code>Cell</code> of the specified column of the table
-	 */
-	public Col getCol(byte colIndex)
-	{
-		return cols[colIndex];
+		this.sizeOfTable=geometry.sizeOfTable;
+		xCount=new byte[geometry.noOfLines];
+		oCount=new byte[geometry.noOfLines];
+		hashes=new long[geometry.noOfTransforms];
+		linesFreeOfX=(byte)geometry.noOfLines;
+		linesFreeOfO=(byte)geometry.noOfLines;
+		setWinScore(Geometry.WIN_SCORE);
 	}
 	/**
 	 * Generic get method to get the number of columns of the <code>Table</code>.
@@ -545,38 +174,18 @@ public class Table implements Cloneable
 		return noOfRows;
 	}
 	/**
-	 * This method is used to obtain the cells of a specific row of the table using its column index.
-	 * @param rowIndex Index of the row in the table
-	 * @return Array of type <code>Cell</code> of the specified row of the table
-	 */
-	public Row getRow(byte rowIndex)
-	{
-		return rows[rowIndex];
-	}
-	/**
-	 * This method is used to initialize the </code>Table</code>.
-	 * References are set properly here.
+	 * This method is used to get the value of a specific cell of the table.
+	 * @param index Index of the cell of the table, can take values from 0 to (sizeOfTable-1).
+	 * @return 'X' or 'O' if the cell has been signed, '-' if it is empty.
 	 */
-	public void init()
+	public char getValue(byte index)
 	{
-		byte index;
-		for(byte i=0;i<this.noOfRows;i++)
-			for(byte j=0;j<this.noOfCols;j++)
-			{
-				index=(byte)((i*noOfRows)+j);
-				getRow(i).setCell(j, cells[index]);
-				getCol(j).setCell(i, cells[index]);
-				getRow(i).getCell(j).setColIndex(j);
-				getRow(i).getCell(j).setRowIndex(i);
-				getRow(i).setRowIndex(i);
-				getCol(j).setColIndex(j);
-				//left diagonal
-				if(i==j)
-					diags[0].setCell(i,cells[index]);
-				//right diagonal
-				if((i+j+1)==noOfRows)
-					diags[1].setCell(i,cells[index]);
-			}
+		long bit=1L<<index;
+		if((xWord(index>>>6)&bit)!=0)
+			return 'X';
+		if((oWord(index>>>6)&bit)!=0)
+			return 'O';
+		return '-';
 	}
 	/**
 	 * This method is used to print the <code>Table</code>, either for debugging or display purposes.
@@ -587,48 +196,146 @@ public class Table implements Cloneable
 		for(byte i=0;i<noOfRows;i++)
 		{
 			for(byte j=0;j<noOfCols;j++)
-				System.out.print(getRow(i).getCell(j).getValue()+" ");
+				System.out.print(getValue((byte)((i*noOfCols)+j))+" ");
 			System.out.println();
 		}
 	}
 	/**
 	 * This method is used to update a specific cell of the table with a specific value(character)
+	 * The counters of the lines through the cell are updated along with the bit boards.
 	 * @param index Index of the cell of the table to be updated, can take values between 0 to (sizeOfTable-1).
-	 * @param updateChar Character to be updated in the specified <code>Cell</code>'s value data member.
+	 * @param updateChar Character to be updated in the specified cell, 'X', 'O' or '-' to empty it.
 	 */
 	public void updateTable(byte index, char updateChar)
 	{
-		cells[index].setValue(updateChar);
+		boolean high=(index>=64);
+		long bit=1L<<index;
+		long x=high?xHighCells:xCells;
+		long o=high?oHighCells:oCells;
+		byte dx=0,dO=0;
+		if((x&bit)!=0)
+			dx--;
+		if((o&bit)!=0)
+			dO--;
+		x&=~bit;
+		o&=~bit;
+		if(updateChar=='X')
+		{
+			x|=bit;
+			dx++;
+		}
+		else if(updateChar=='O')
+		{
+			o|=bit;
+			dO++;
+		}
+		if(high)
+		{
+			xHighCells=x;
+			oHighCells=o;
+		}
+		else
+		{
+			xCells=x;
+			oCells=o;
+		}
+		if((dx==0)&&(dO==0))
+			return;
+		for(int t=0;t<hashes.length;t++)
+		{
+			long keys[]=geometry.zobrist[geometry.transforms[t][index]];
+			if(dx!=0)
+				hashes[t]^=keys[0];
+			if(dO!=0)
+				hashes[t]^=keys[1];
+		}
+		xTotal+=dx;
+		oTotal+=dO;
+		byte lines[]=geometry.cellLines[index];
+		for(int i=0;i<lines.length;i++)
+			updateLine(lines[i],dx,dO);
+	}
+	/**
+	 * This method is used to change the counts of a line, keeping the number
+	 * of free, open and complete lines in step.
+	 * @param line Index of the line in the <code>Geometry</code>
+	 * @param dx Change in the number of X's on the line
+	 * @param dO Change in the number of O's on the line
+	 */
+	private void updateLine(int line, byte dx, byte dO)
+	{
+		countLine(line,(byte)-1);
+		xCount[line]+=dx;
+		oCount[line]+=dO;
+		countLine(line,(byte)1);
+	}
+	/**
+	 * Helper of <code>updateLine()</code>, adds (or removes) a line to (or from)
+	 * the free, open and complete line counters it belongs to.
+	 * @param line Index of the line in the <code>Geometry</code>
+	 * @param sign 1 to add the line, -1 to remove it
+	 */
+	private void countLine(int line, byte sign)
+	{
+		byte x=xCount[line],o=oCount[line];
+		if(x==0)
+			linesFreeOfX+=sign;
+		if(o==0)
+			linesFreeOfO+=sign;
+		if((x!=0)&&(o==0))
+			linesOpenToX+=sign;
+		if((o!=0)&&(x==0))
+			linesOpenToO+=sign;
+		if(x==geometry.lineLengths[line])
+			linesCompleteX+=sign;
+		if(o==geometry.lineLengths[line])
+			linesCompleteO+=sign;
+	}
+	/**
+	 * This method is used to check if a line is complete,
+	 * (i.e.) filled with the same characters.
+	 * @param line Index of the line in the <code>Geometry</code>
+	 * @return -1 if not Complete, 1 if X is Complete, 0 if O is Complete
+	 */
+	private byte isLineComplete(int line)
+	{
+		if(xCount[line]==geometry.lineLengths[line])
+			return 1;
+		if(oCount[line]==geometry.lineLengths[line])
+			return 0;
+		return -1;
 	}
 	/**
 	 * This method is used to check if the table is complete,
 	 * (i.e.) if any rows, columns or diagonals are filled with the same characters.
 	 * Note that '-' denotes an empty cell and does not fulfill the completion criterion.
+	 * Only when both sides have completed a line (which never happens in a real game)
+	 * are the lines looked at, diagonals first, to decide which one to report.
 	 * @return -1 if not Complete, 1 if X is Complete, 0 if O is Complete
 	 */
 	public byte isComplete()
 	{
-		for(byte i=0;i<2;i++)
-			if(diags[i].isComplete()!=-1)
-				return diags[i].isComplete();
-		for(byte i=0;i<this.noOfRows;i++)
-			if(rows[i].isComplete()!=-1)
-				return rows[i].isComplete();
-		for(byte i=0;i<this.noOfCols;i++)
-			if(cols[i].isComplete()!=-1)
-				return cols[i].isComplete();
+		if(linesCompleteO==0)
+			return (byte)((linesCompleteX==0)?-1:1);
+		if(linesCompleteX==0)
+			return 0;
+		byte returnValue;
+		for(int i=geometry.firstDiag;i<geometry.noOfLines;i++)
+			if((returnValue=isLineComplete(i))!=-1)
+				return returnValue;
+		for(int i=0;i<geometry.firstDiag;i++)
+			if((returnValue=isLineComplete(i))!=-1)
+				return returnValue;
 		return -1;	
 	}
 	/**
 	 * This method is used to check if a given cell of a table is empty.
 	 * @param index Index of the cell of the table, can take values from 0 to (sizeOfTable-1).
-	 * @return <code>True</code> if the specified <code>Cell</code> is empty, <code>False</code> otherwise.
+	 * @return <code>True</code> if the specified cell is empty, <code>False</code> otherwise.
 	 */
 	public boolean isEmpty(byte index)
 	{
-		if(cells[index].getValue()=='-')
-			return true;
-		return false;
+		return (((xWord(index>>>6)|oWord(index>>>6))&(1L<<index))==0);
 	}
 	/**
 	 * This method is used to get the total number of blank cells in the table.
@@ -637,25 +344,24 @@ public class Table implements Cloneable
 	 */
 	public byte getNoOfDs()
 	{
-		byte returnValue=0;
-		for(byte i=0;i<sizeOfTable;i++)
-			if(isEmpty(i))
-				returnValue++;
-		return returnValue;
+		return (byte)(sizeOfTable-xTotal-oTotal);
 	}
 	/**
 	 * This method is used to get the score of the current Table.
-	 * Score is returned as a double value, from X's perspective of the game at
+	 * Score is returned as a long value, from X's perspective of the game at
 	 * all times.
 	 * The score calculation is made here (This is the evaluation function).
-	 * @return Score of the table as a double value.
+	 * All its weights are whole numbers looked up from the <code>Geometry</code>
+	 * of the table, so scores are exact and are compared exactly.
+	 * @return Score of the table as a long value.
 	 */
-	public double getScore()
+	public long getScore()
 	{
-		if(isComplete()==1)
-			return (Math.pow(sizeOfTable+1,sizeOfTable+1)-1);
-		if(isComplete()==0)
-			return -(Math.pow(sizeOfTable+1,sizeOfTable+1)-1);
+		byte complete=isComplete();
+		if(complete==1)
+			return winScore;
+		if(complete==0)
+			return -winScore;
 		score=0;
 		score-=getOScore();
 		score+=getXScore();
@@ -669,369 +375,331 @@ public class Table implements Cloneable
 	 * eg, if there is a fork, the winning chance of the forking side is 2 in a 3x3
 	 * game. Consequently in an nxn game, there may be many moves which may produce
 	 * more than one winning chance.
-	 * Specifically, it calculates the number of winning chances for X and then O
-	 * and then returns the difference, multiplied by the one with a greater
-	 * closeness to finish the game.
+	 * Specifically, it counts the lines still open to X (lines with an X and no O)
+	 * and then those still open to O, and returns the difference, each weighted by
+	 * the closeness of such a line to being finished.
 	 * @return The winning chances, positive if there are more winning chances for
 	 * X and negative if there are more winning chances for O, as scoring is done
 	 * from X's perspective always.
 	 */
-	private double winningChances() {
-		double returnValue=0;
-		int maxCloseness=-1;
-		byte count1, count2, maxCloseCountX=-1;
-		int closenessCount;
-		byte maxCloseCountO=-1;
-		for(byte i=0;i<noOfRows;i++)
-		{
-			closenessCount=0;
-			count1=0;
-			count2=0;
-			for(byte j=0;j<noOfCols;j++)
-			{
-				if(rows[i].getCell(j).getValue()=='X')
-					count1++;
-				if(rows[i].getCell(j).getValue()=='O')
-				{
-					count1=0;
-					break;
-				}
-				if(rows[i].getCell(j).getValue()=='-')
-					count2++;
-			}
-			if(count1!=0)
-				closenessCount=count1+count2;
-			if(closenessCount!=0)
-			{
-				if(closenessCount>maxCloseness)
-				{
-					maxCloseness=closenessCount;
-					maxCloseCountX=1;
-				}
-				if(closenessCount==maxCloseness)
-					maxCloseCountX++;
-			}
-		}
-		for(byte i=0;i<noOfRows;i++)
-		{
-			closenessCount=0;
-			count1=0;
-			count2=0;
-			for(byte j=0;j<noOfCols;j++)
-			{
-				if(cols[i].getCell(j).getValue()=='X')
-					count1++;
-				if(cols[i].getCell(j).getValue()=='O')
-				{
-					count1=0;
-					break;
-				}
-				if(cols[i].getCell(j).getValue()=='-')
-					count2++;
-			}
-			if(count1!=0)
-				closenessCount=count1+count2;
-			if(closenessCount!=0)
-			{
-				if(closenessCount>maxCloseness)
-				{
-					maxCloseness=closenessCount;
-					maxCloseCountX=1;
-				}
-				if(closenessCount==maxCloseness)
-					maxCloseCountX++;
-			}
-		}
-		for(byte i=0;i<2;i++)
-		{
-			closenessCount=0;
-			count1=0;
-			count2=0;
-			for(byte j=0;j<noOfCols;j++)
-			{
-				if(diags[i].getCell(j).getValue()=='X')
-					count1++;
-				if(diags[i].getCell(j).getValue()=='O')
-				{
-					count1=0;
-					break;
-				}
-				if(diags[i].getCell(j).getValue()=='-')
-					count2++;
-			}
-			if(count1!=0)
-				closenessCount=count1+count2;
-			if(closenessCount!=0)
-			{
-				if(closenessCount>maxCloseness)
-				{
-					maxCloseness=closenessCount;
-					maxCloseCountX=1;
-				}
-				if(closenessCount==maxCloseness)
-					maxCloseCountX++;
-			}
-		}
-		returnValue+=(maxCloseCountX*Math.pow(sizeOfTable+1,maxCloseness));
-		maxCloseness=-1;
-		for(byte i=0;i<noOfRows;i++)
-		{
-			closenessCount=0;
-			count1=0;
-			count2=0;
-			for(byte j=0;j<noOfCols;j++)
-			{
-				if(rows[i].getCell(j).getValue()=='O')
-					count1++;
-				if(rows[i].getCell(j).getValue()=='X')
-				{
-					count1=0;
-					break;
-				}
-				if(rows[i].getCell(j).getValue()=='-')
-					count2++;
-			}
-			if(count1!=0)
-				closenessCount=count1+count2;
-			if(closenessCount!=0)
-			{
-				if(closenessCount>maxCloseness)
-				{
-					maxCloseness=closenessCount;
-					maxCloseCountO=1;
-				}
-				if(closenessCount==maxCloseness)
-					maxCloseCountO++;
-			}
-		}
-		for(byte i=0;i<noOfRows;i++)
-		{
-			closenessCount=0;
-			count1=0;
-			count2=0;
-			for(byte j=0;j<noOfCols;j++)
-			{
-				if(cols[i].getCell(j).getValue()=='O')
-					count1++;
-				if(cols[i].getCell(j).getValue()=='X')
-				{
-					count1=0;
-					break;
-				}
-				if(cols[i].getCell(j).getValue()=='-')
-					count2++;
-			}
-			if(count1!=0)
-				closenessCount=count1+count2;
-			if(closenessCount!=0)
-			{
-				if(closenessCount>maxCloseness)
-				{
-					maxCloseness=closenessCount;
-					maxCloseCountO=1;
-				}
-				if(closenessCount==maxCloseness)
-					maxCloseCountO++;
-			}
-		}
-		for(byte i=0;i<2;i++)
-		{
-			closenessCount=0;
-			count1=0;
-			count2=0;
-			for(byte j=0;j<noOfCols;j++)
-			{
-				if(diags[i].getCell(j).getValue()=='O')
-					count1++;
-				if(diags[i].getCell(j).getValue()=='X')
-				{
-					count1=0;
-					break;
-				}
-				if(diags[i].getCell(j).getValue()=='-')
-					count2++;
-			}
-			if(count1!=0)
-				closenessCount=count1+count2;
-			if(closenessCount!=0)
-			{
-				if(closenessCount>maxCloseness)
-				{
-					maxCloseness=closenessCount;
-					maxCloseCountO=1;
-				}
-				if(closenessCount==maxCloseness)
-					maxCloseCountO++;
-			}
-		}
-		returnValue-=(maxCloseCountO*Math.pow(sizeOfTable+1,maxCloseness));
+	private long winningChances() {
+		long returnValue=0;
+		returnValue+=closeness(linesOpenToX);
+		returnValue-=closeness(linesOpenToO);
 		return returnValue;
 	}
+	/**
+	 * Helper of <code>winningChances()</code> for one side. A line which has at
+	 * least one of the side's signs and none of the opponent's can be finished by
+	 * signing its remaining cells, so its closeness is the whole line.
+	 * @param linesOpen Number of lines open to the side
+	 * @return The weighted number of lines open to the side.
+	 */
+	private long closeness(int linesOpen)
+	{
+		if(linesOpen==0)
+			return -1;
+		return (linesOpen+1)*geometry.openLineScore;
+	}
 	/**
 	 * This function returns the lines without O in the grid.
 	 * @return The number of lines along which X can be completed,
 	 * that is, the number of rows, columns and diagonals which don't
-	 * have even a single 'O'. 
+	 * have even a single 'O', weighted. 
 	 */
-	public double linesWithoutO()
+	public long linesWithoutO()
 	{
-		double returnValue=0;
-		byte count1=noOfRows,count2=noOfCols,count3=2;
-		for(byte i=0;i<noOfRows;i++)
-			for(byte j=0;j<noOfCols;j++)
-				if(rows[i].getCell(j).getValue()=='O')
-				{
-					count1--;
-					break;
-				}
-		for(byte i=0;i<noOfRows;i++)
-			for(byte j=0;j<noOfCols;j++)
-				if(cols[i].getCell(j).getValue()=='O')
-				{
-					count2--;
-					break;
-				}
-		for(byte i=0;i<2;i++)
-			for(byte j=0;j<noOfRows;j++)
-				if(diags[i].getCell(j).getValue()=='O')
-				{
-					count3--;
-					break;
-				}
-		returnValue+=count1+count2+count3;
-		returnValue*=Math.pow((sizeOfTable+1),(noOfRows-1));
-		return returnValue;
+		return linesWithout(linesFreeOfO);
 	}
 	/**
 	 * This function returns the lines without X in the grid.
 	 * @return The number of lines along which O can be completed,
 	 * that is, the number of rows, columns and diagonals which don't
-	 * have even a single 'X'. 
+	 * have even a single 'X', weighted. 
 	 */
-	public double linesWithoutX()
+	public long linesWithoutX()
 	{
-		double returnValue=0;
-		byte count1=noOfRows,count2=noOfCols,count3=2;
-		for(byte i=0;i<noOfRows;i++)
-			for(byte j=0;j<noOfCols;j++)
-				if(rows[i].getCell(j).getValue()=='X')
-				{
-					count1--;
-					break;
-				}
-		for(byte i=0;i<noOfRows;i++)
-			for(byte j=0;j<noOfCols;j++)
-				if(cols[i].getCell(j).getValue()=='X')
-				{
-					count2--;
-					break;
-				}
-		for(byte i=0;i<2;i++)
-			for(byte j=0;j<noOfRows;j++)
-				if(diags[i].getCell(j).getValue()=='X')
+		return linesWithout(linesFreeOfX);
+	}
+	/**
+	 * Helper of <code>linesWithoutO()</code> and <code>linesWithoutX()</code>.
+	 * @param count Number of lines which don't have the side's sign
+	 * @return The weighted number of lines which don't have the side's sign.
+	 */
+	private long linesWithout(int count)
+	{
+		return count*geometry.freeLineScore;
+	}
+	/**
+	 * This method is used to find the empty cells of the lines a side is close
+	 * to completing: the lines without a single sign of the other side, which
+	 * the side would complete with <code>missing</code> more signs. With 1, the
+	 * cells found are those the side wins by signing; with 2, those by which it
+	 * makes such a cell (a threat).
+	 * @param sign Sign of the side, 'X' or 'O'
+	 * @param missing Number of signs the side is missing on the lines
+	 * @param cells Array the indices of the cells are written to, each once,
+	 * large enough for every cell of the table
+	 * @return Number of cells found
+	 */
+	public int getOpenCells(char sign, int missing, byte cells[])
+	{
+		byte own[]=(sign=='X')?xCount:oCount;
+		byte other[]=(sign=='X')?oCount:xCount;
+		int count=0;
+		for(int line=0;line<geometry.noOfLines;line++)
+		{
+			if((other[line]!=0)||(own[line]!=geometry.lineLengths[line]-missing))
+				continue;
+			for(int w=0;w<geometry.words;w++)
+			{
+				long empty=geometry.lineMasks[line][w]&~(xWord(w)|oWord(w));
+				while(empty!=0)
 				{
-					count3--;
-					break;
+					byte index=(byte)((w<<6)+Long.numberOfTrailingZeros(empty));
+					empty&=empty-1;
+					int i=0;
+					while((i<count)&&(cells[i]!=index))
+						i++;
+					if(i==count)
+						cells[count++]=index;
 				}
-		returnValue+=count1+count2+count3;
-		returnValue*=Math.pow((sizeOfTable+1),(noOfRows-1));
-		return returnValue;
+			}
+		}
+		return count;
 	}
 	/**
 	 * This function is used to get the X's score of the game.
 	 * @return X's score
 	 */
-	public double getXScore()
+	public long getXScore()
 	{
-		double returnValue=0;
-		byte count1,count2,count3;
-		for(byte i=1;i<=noOfRows;i++)
-		{
-			count1=0;
-			count2=0;
-			count3=0;
-			for(byte j=0;j<noOfRows;j++)
-				for(byte k=0;k<noOfCols;k++)
-				{
-					if(rows[j].getCell(k).getValue()=='X')
-						count1++;
-					if(cols[j].getCell(k).getValue()=='X')
-						count2++;
-					if(j<2)
-						if(diags[j].getCell(k).getValue()=='X')
-							count3++;
-				}
-			if(count1>i)
-				returnValue+=(Math.pow((sizeOfTable+1),i)*i);
-			if(count2>i)
-				returnValue+=(Math.pow((sizeOfTable+1),i)*i);
-			if(count3>i)
-				returnValue+=(Math.pow((sizeOfTable+1),i)*i);				
-		}
-		return returnValue;
+		return sideScore(xTotal,xCount);
 	}
 	/**
 	 * This function is used to get the O's score of the game.
 	 * @return O's score
 	 */
-	public double getOScore()
+	public long getOScore()
 	{
-		double returnValue=0;
-		byte count1,count2,count3;
-		for(byte i=1;i<=noOfRows;i++)
-		{
-			count1=0;
-			count2=0;
-			count3=0;
-			for(byte j=0;j<noOfRows;j++)
-			{
-				for(byte k=0;k<noOfCols;k++)
-				{
-					if(rows[j].getCell(k).getValue()=='O')
-						count1++;
-					if(cols[j].getCell(k).getValue()=='O')
-						count2++;
-					if(j<2)
-						if(diags[j].getCell(k).getValue()=='O')
-							count3++;
-				}
-			}
-			if(count1>i)
-				returnValue+=(Math.pow((sizeOfTable+1),i)*i);
-			if(count2>i)
-				returnValue+=(Math.pow((sizeOfTable+1),i)*i);
-			if(count3>i)
-				returnValue+=(Math.pow((sizeOfTable+1),i)*i);
-		}
-		return returnValue;
+		return sideScore(oTotal,oCount);
+	}
+	/**
+	 * Helper of <code>getXScore()</code> and <code>getOScore()</code>.
+	 * The rows and the columns each hold all the signs of the side, while the
+	 * diagonals hold only those on them, and each count is rewarded for every
+	 * i it exceeds (see <code>Geometry.countScores</code>).
+	 * @param total Total number of the side's signs
+	 * @param lineCounts Number of the side's signs on every line
+	 * @return The side's score
+	 */
+	private long sideScore(int total,byte lineCounts[])
+	{
+		int diagonalCount=0;
+		for(int i=geometry.firstDiag;i<geometry.noOfLines;i++)
+			diagonalCount+=lineCounts[i];
+		long countScores[]=geometry.countScores;
+		return (2*countScores[total])+countScores[diagonalCount];
+	}
+	/**
+	 * This method is used to read a table written by <code>toString()</code>:
+	 * the values of all cells ('X', 'O' or '-'), row after row. The table is
+	 * taken to be square, so the number of cells must be a square.
+	 * @param cells The values of the cells, row after row
+	 * @return The table
+	 * @throws IllegalArgumentException If the cells do not make a square table
+	 * of 1x1 to 11x11, or a cell is not 'X', 'O' or '-'
+	 */
+	public static Table parse(String cells)
+	{
+		int side=(int)Math.round(Math.sqrt(cells.length()));
+		if((side*side)!=cells.length())
+			throw new IllegalArgumentException("Not a square table: "+cells);
+		Table table=new Table((byte)side,(byte)side);
+		for(byte i=0;i<cells.length();i++)
+		{
+			char value=cells.charAt(i);
+			if((value!='X')&&(value!='O')&&(value!='-'))
+				throw new IllegalArgumentException("Cells can only be X, O or -: "+cells);
+			if(value!='-')
+				table.updateTable(i,value);
+		}
+		return table;
+	}
+	/**
+	 * This method is used to write the table as the values of all its cells
+	 * ('X', 'O' or '-'), row after row, as read by <code>parse()</code>.
+	 * @return The values of the cells of the table
+	 */
+	@Override
+	public String toString()
+	{
+		StringBuilder cells=new StringBuilder(sizeOfTable);
+		for(byte i=0;i<sizeOfTable;i++)
+			cells.append(getValue(i));
+		return cells.toString();
 	}
 	/**
-	 * Clone method, which overrides Object clone(), is used in place of a copy constructor
+	 * Clone method, which overrides Object clone(), is used in place of a copy constructor.
+	 * The bit boards are plain fields, copied by <code>Object.clone()</code>;
+	 * only the arrays of the line counters and of the hashes are copied on
+	 * top, the geometry is shared.
 	 * @return Clone of the specified table if possible, else <code>null</code>
 	 */	
 	public Table clone()
 	{
-			Table returnTable=new Table(this.noOfRows,this.noOfCols);
-			for(byte i=0;i<this.sizeOfTable;i++)
-			{
-				returnTable.cells[i]=new Cell();
-				returnTable.cells[i].setValue(this.cells[i].getValue());
-			}
-			returnTable.init();
+		try
+		{
+			Table returnTable=(Table)super.clone();
+			returnTable.xCount=xCount.clone();
+			returnTable.oCount=oCount.clone();
+			returnTable.hashes=hashes.clone();
 			return returnTable;
+		}
+		catch(CloneNotSupportedException e)
+		{
+			return null;
+		}
 	}
 	/**
-	 * This method returns the index of the first empty cell of the table.
-	 * Useful for some things, as we will see in the code.
+	 * This method is used to get a word of the bit board of X.
+	 * @param word 0 for the cells 0 to 63, 1 for the cells from 64 on
+	 */
+	private long xWord(int word)
+	{
+		return (word==0)?xCells:xHighCells;
+	}
+	/**
+	 * This method is used to get a word of the bit board of O.
+	 * @param word 0 for the cells 0 to 63, 1 for the cells from 64 on
+	 */
+	private long oWord(int word)
+	{
+		return (word==0)?oCells:oHighCells;
+	}
+	/**
+	 * This method returns the index of the last empty cell of the table
+	 * (0 if there are none). Useful for some things, as we will see in the code.
 	 */
 	public byte getFirstDashIndex()
 	{
-		byte returnValue = 0;
-		for(byte i=0;i<sizeOfTable;i++)
-			if(isEmpty(i))
-				returnValue=i;
+		for(int w=geometry.words-1;w>=0;w--)
+		{
+			long empty=geometry.fullMask[w]&~(xWord(w)|oWord(w));
+			if(empty!=0)
+				return (byte)((w<<6)+63-Long.numberOfLeadingZeros(empty));
+		}
+		return 0;
+	}
+	/**
+	 * This method is used to get the Zobrist hash of the table, used to look
+	 * the table up in a transposition table. Tables of the same size with the
+	 * same cells signed have the same hash.
+	 * @return The hash of the table.
+	 */
+	public long getHash()
+	{
+		return hashes[0];
+	}
+	/**
+	 * This method is used to get the hash the table would have after being
+	 * rotated or reflected by one of its symmetries.
+	 * @param transform Index of the symmetry, 0 (identity) to <code>getNoOfTransforms()-1</code>
+	 * @return The hash of the transformed table.
+	 */
+	public long getHash(int transform)
+	{
+		return hashes[transform];
+	}
+	/**
+	 * This method is used to find the symmetry which takes the table to its
+	 * canonical form, the one of all its rotations and reflections with the
+	 * smallest hash. Symmetric positions have the same canonical form, so they
+	 * can share cached search results.
+	 * @return Index of the symmetry, to be used with <code>getHash(int)</code>,
+	 * <code>transformIndex()</code> and <code>inverseTransformIndex()</code>.
+	 */
+	public int getCanonicalTransform()
+	{
+		int returnValue=0;
+		for(int t=1;t<hashes.length;t++)
+			if(hashes[t]<hashes[returnValue])
+				returnValue=t;
 		return returnValue;
 	}
+	/**
+	 * This method is used to get the hash of the canonical form of the table.
+	 * @return The smallest hash of all rotations and reflections of the table.
+	 */
+	public long getCanonicalHash()
+	{
+		return hashes[getCanonicalTransform()];
+	}
+	/**
+	 * Generic getter method for the number of lines (rows, columns and, on
+	 * square tables, the two diagonals) of the table.
+	 * @return The number of lines.
+	 */
+	public int getNoOfLines()
+	{
+		return geometry.noOfLines;
+	}
+	/**
+	 * This method is used to get the number of cells of a line.
+	 * @param line Index of the line, from 0 to (noOfLines-1).
+	 * @return The number of cells of the line, which a side must all sign to win.
+	 */
+	public byte getLineLength(int line)
+	{
+		return geometry.lineLengths[line];
+	}
+	/**
+	 * This method is used to get the lines passing through a cell, so that
+	 * boards kept outside of the table (such as the playout boards of the Monte
+	 * Carlo search) are laid out like it.
+	 * @param index Index of the cell of the table, can take values from 0 to (sizeOfTable-1).
+	 * @return Indices of the lines through the cell, a copy which may be kept.
+	 */
+	public byte[] getLinesOfCell(byte index)
+	{
+		return geometry.cellLines[index].clone();
+	}
+	/**
+	 * Generic getter method for the number of symmetries of the table:
+	 * 8 for square tables, 1 (only the identity) otherwise.
+	 * @return The number of symmetries.
+	 */
+	public int getNoOfTransforms()
+	{
+		return hashes.length;
+	}
+	/**
+	 * This method is used to map a cell index through a symmetry, for example
+	 * to store a best move in the coordinates of the canonical table.
+	 * @param transform Index of the symmetry
+	 * @param index Index of the cell, negative values are returned unchanged
+	 * @return Index of the cell after the transformation.
+	 */
+	public byte transformIndex(int transform, byte index)
+	{
+		if(index<0)
+			return index;
+		return geometry.transforms[transform][index];
+	}
+	/**
+	 * This method is used to map a cell index back through a symmetry, for
+	 * example to map a best move of the canonical table back to this table.
+	 * @param transform Index of the symmetry
+	 * @param index Index of the cell in the transformed table, negative values
+	 * are returned unchanged
+	 * @return Index of the cell in this table.
+	 */
+	public byte inverseTransformIndex(int transform, byte index)
+	{
+		if(index<0)
+			return index;
+		return geometry.inverseTransforms[transform][index];
+	}
 	/**
 	 * This is the generic getter method for getting the size of the table.
 	 * Very useful to check for game end.
@@ -1046,7 +714,7 @@ public class Table implements Cloneable
 	 * table after it has been created.
 	 * @return The winning score of the table, from X's perspective
 	 */
-	public double getWinScore() {
+	public long getWinScore() {
 		return winScore;
 	}
 	/**
@@ -1055,25 +723,48 @@ public class Table implements Cloneable
 	 * used during construction.
 	 * @param winScore The winning score of the table.
 	 */
-	public void setWinScore(double winScore) {
+	public void setWinScore(long winScore) {
 		this.winScore = winScore;
 	}
+	/**
+	 * This method is used to make a move in place, signing the specified cell.
+	 * Used by the search to play moves on a single table instead of copying it.
+	 * @param index Index of the (empty) cell to be signed.
+	 * @param sign Sign of the player making the move, 'X' or 'O'.
+	 */
+	public void makeMove(byte index, char sign)
+	{
+		updateTable(index,sign);
+	}
+	/**
+	 * This method is used to take back a move made with <code>makeMove(byte, char)</code>,
+	 * emptying the specified cell again.
+	 * @param index Index of the cell to be emptied.
+	 */
+	public void unMakeMove(byte index)
+	{
+		updateTable(index,'-');
+	}
 	/**
 	 * A makeMove method, but this one returns the resulting table.
+	 * The move is made in place, so the table returned is this table.
 	 * @param moveToMake The move to be made.
 	 * @return The table after the move has been made.
 	 */
 	public Table makeMove(Move moveToMake)
 	{
-		return moveToMake.getTableNext();
+		makeMove(moveToMake.getIndex(),moveToMake.getSign());
+		return this;
 	}
 	/**
 	 * An unMakeMove method, but this one returns the resulting table.
+	 * The move is taken back in place, so the table returned is this table.
 	 * @param moveToUnMake The move to be un-made.
 	 * @return The table after the move has been un-made.
 	 */
 	public Table unMakeMove(Move moveToUnMake)
 	{
-		return moveToUnMake.getTableCurrent();
+		unMakeMove(moveToUnMake.getIndex());
+		return this;
 	}
 }
\ No newline at end of file